@@ -79,6 +79,13 @@ public class DeepShortcutManager {
         return Collections.emptyList();
     }
 
+    /**
+     * Removes the cached shortcuts of the given package, or of all packages of the user if
+     * packageName is null.
+     */
+    public void invalidateShortcutCache(String packageName, UserHandle user) {
+    }
+
     /**
      * Removes the given shortcut from the current list of pinned shortcuts.
      * (Runs on background thread)
@@ -50,6 +50,7 @@ public class BaseIconFactory implements AutoCloseable {
 
     private Drawable mWrapperIcon;
     private int mWrapperBackgroundColor = DEFAULT_WRAPPER_BACKGROUND;
+    private NormalizationInfo mNormalizationInfo;
 
     protected BaseIconFactory(Context context, int fillResIconDpi, int iconBitmapSize,
             boolean shapeDetection) {
@@ -73,6 +74,7 @@ public class BaseIconFactory implements AutoCloseable {
     protected void clear() {
         mWrapperBackgroundColor = DEFAULT_WRAPPER_BACKGROUND;
         mDisableColorExtractor = false;
+        mNormalizationInfo = null;
     }
 
     public ShadowGenerator getShadowGenerator() {
@@ -197,6 +199,14 @@ public class BaseIconFactory implements AutoCloseable {
         mWrapperBackgroundColor = (Color.alpha(color) < 255) ? DEFAULT_WRAPPER_BACKGROUND : color;
     }
 
+    /**
+     * Sets the normalization result to use for the icons created by this factory. If the info is
+     * not valid, it is populated with the result of the next normalization instead.
+     */
+    public void setNormalizationInfo(NormalizationInfo info) {
+        mNormalizationInfo = info;
+    }
+
     /**
      * Disables the dominant color extraction for all icons loaded.
      */
@@ -216,7 +226,17 @@ public class BaseIconFactory implements AutoCloseable {
             AdaptiveIconDrawable dr = (AdaptiveIconDrawable) mWrapperIcon;
             dr.setBounds(0, 0, 1, 1);
             boolean[] outShape = new boolean[1];
-            scale = getNormalizer().getScale(icon, outIconBounds, dr.getIconMask(), outShape);
+            // The persisted result does not include the bounds, so only use it when not needed.
+            NormalizationInfo info = outIconBounds == null ? mNormalizationInfo : null;
+            if (info != null && info.isValid) {
+                scale = info.scale;
+                outShape[0] = info.isMaskShape;
+            } else {
+                scale = getNormalizer().getScale(icon, outIconBounds, dr.getIconMask(), outShape);
+                if (info != null) {
+                    info.set(scale, outShape[0]);
+                }
+            }
             if (!(icon instanceof AdaptiveIconDrawable) && !outShape[0]) {
                 FixedScaleDrawable fsd = ((FixedScaleDrawable) dr.getForeground());
                 fsd.setDrawable(icon);
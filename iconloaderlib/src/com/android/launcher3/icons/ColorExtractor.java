@@ -30,6 +30,7 @@ public class ColorExtractor {
     private final float[] mTmpHueScoreHistogram = new float[360];
     private final int[] mTmpPixels = new int[NUM_SAMPLES];
     private final SparseArray<Float> mTmpRgbScores = new SparseArray<>();
+    private int[] mTmpRow = new int[0];
 
     /**
      * This picks a dominant color, looking for high-saturation, high-value, repeated hues.
@@ -62,13 +63,20 @@ public class ColorExtractor {
         float highScore = -1;
         int bestHue = -1;
 
-        int[] pixels = mTmpPixels;
+        int[] pixels = samples <= mTmpPixels.length ? mTmpPixels : new int[samples];
         Arrays.fill(pixels, 0);
         int pixelCount = 0;
 
+        if (mTmpRow.length < width) {
+            mTmpRow = new int[width];
+        }
+        int[] row = mTmpRow;
+
         for (int y = 0; y < height; y += sampleStride) {
+            // Copy the sampled row in a single call, instead of one native call per pixel.
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
             for (int x = 0; x < width; x += sampleStride) {
-                int argb = bitmap.getPixel(x, y);
+                int argb = row[x];
                 int alpha = 0xFF & (argb >> 24);
                 if (alpha < 0x80) {
                     // Drop mostly-transparent pixels.
@@ -76,7 +84,7 @@ public class ColorExtractor {
                 }
                 // Remove the alpha channel.
                 int rgb = argb | 0xFF000000;
-                Color.colorToHSV(rgb, hsv);
+                rgbToHsv(rgb, hsv);
                 // Bucket colors by the 360 integer hues.
                 int hue = (int) hsv[0];
                 if (hue < 0 || hue >= hueScoreHistogram.length) {
@@ -104,7 +112,7 @@ public class ColorExtractor {
         // The highest-scoring RGB color wins.
         for (int i = 0; i < pixelCount; i++) {
             int rgb = pixels[i];
-            Color.colorToHSV(rgb, hsv);
+            rgbToHsv(rgb, hsv);
             int hue = (int) hsv[0];
             if (hue == bestHue) {
                 float s = hsv[1];
@@ -124,4 +132,42 @@ public class ColorExtractor {
         }
         return bestColor;
     }
+
+    /**
+     * Same as {@link Color#colorToHSV(int, float[])}, but computed without a native call. The
+     * arithmetic mirrors the framework implementation so that the results are identical.
+     */
+    public static void rgbToHsv(int rgb, float[] hsv) {
+        int r = Color.red(rgb);
+        int g = Color.green(rgb);
+        int b = Color.blue(rgb);
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int delta = max - min;
+
+        float v = (float) max / 255;
+        if (delta == 0) {
+            // Shade of gray
+            hsv[0] = 0;
+            hsv[1] = 0;
+            hsv[2] = v;
+            return;
+        }
+
+        float h;
+        if (r == max) {
+            h = (float) (g - b) / delta;
+        } else if (g == max) {
+            h = 2 + (float) (b - r) / delta;
+        } else {
+            h = 4 + (float) (r - g) / delta;
+        }
+        h *= 60;
+        if (h < 0) {
+            h += 360;
+        }
+        hsv[0] = h;
+        hsv[1] = (float) delta / max;
+        hsv[2] = v;
+    }
 }
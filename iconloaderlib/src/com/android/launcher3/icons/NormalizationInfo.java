@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.icons;
+
+/**
+ * Result of normalizing a non-adaptive icon using {@link IconNormalizer}. It can be persisted
+ * along with the icon, so that the pixel scan can be skipped when the same drawable is converted
+ * again, for eg, when the icon is recreated after a locale change.
+ */
+public class NormalizationInfo {
+
+    /** Whether the scale and shape have been computed */
+    public boolean isValid;
+    /** The scale required to normalize the icon */
+    public float scale;
+    /** Whether the icon already matches the adaptive icon mask shape */
+    public boolean isMaskShape;
+
+    public void set(float scale, boolean isMaskShape) {
+        this.scale = scale;
+        this.isMaskShape = isMaskShape;
+        isValid = true;
+    }
+}
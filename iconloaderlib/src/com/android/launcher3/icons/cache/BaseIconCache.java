@@ -46,18 +46,22 @@ import com.android.launcher3.icons.BaseIconFactory;
 import com.android.launcher3.icons.BitmapInfo;
 import com.android.launcher3.icons.BitmapRenderer;
 import com.android.launcher3.icons.GraphicsUtils;
+import com.android.launcher3.icons.NormalizationInfo;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.SQLiteCacheHelper;
 
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 public abstract class BaseIconCache {
 
@@ -72,6 +76,10 @@ public abstract class BaseIconCache {
     public static class CacheEntry extends BitmapInfo {
         public CharSequence title = "";
         public CharSequence contentDescription = "";
+
+        // The normalization applied to the high-res icon, if known. It is persisted again when
+        // the entry is reused for a new DB row.
+        @Nullable NormalizationInfo normalizationInfo;
     }
 
     private final HashMap<UserHandle, BitmapInfo> mDefaultIcons = new HashMap<>();
@@ -90,6 +98,10 @@ public abstract class BaseIconCache {
     private final BitmapFactory.Options mDecodeOptions;
     private final Looper mBgLooper;
 
+    // Incremented when the icons being created off the worker thread become invalid, so that
+    // they are dropped instead of being added to the cache. Only modified while holding the lock.
+    private volatile int mUpdateGeneration;
+
     public BaseIconCache(Context context, String dbFileName, Looper bgLooper,
             int iconDpi, int iconPixelSize, boolean inMemoryCache) {
         mContext = context;
@@ -148,6 +160,7 @@ public abstract class BaseIconCache {
     }
 
     private synchronized void updateIconParamsBg(int iconDpi, int iconPixelSize) {
+        mUpdateGeneration++;
         mIconDpi = iconDpi;
         mDefaultIcons.clear();
         mIconDb.clear();
@@ -252,25 +265,115 @@ public abstract class BaseIconCache {
         ComponentName componentName = cachingLogic.getComponent(object);
 
         final ComponentKey key = new ComponentKey(componentName, user);
-        CacheEntry entry = null;
-        if (!replaceExisting) {
-            entry = mCache.get(key);
-            // We can't reuse the entry if the high-res icon is not present.
-            if (entry == null || entry.icon == null || entry.isLowRes()) {
-                entry = null;
-            }
-        }
+        CacheEntry entry = replaceExisting ? null : getReusableEntry(key);
         if (entry == null) {
             entry = new CacheEntry();
-            cachingLogic.loadIcon(mContext, object, entry);
+            loadIconForUpdate(object, cachingLogic, info, userSerial, replaceExisting, entry);
         }
         entry.title = cachingLogic.getLabel(object);
         entry.contentDescription = mPackageManager.getUserBadgedLabel(entry.title, user);
         mCache.put(key, entry);
 
-        ContentValues values = newContentValues(entry, entry.title.toString(),
+        mIconDb.insertOrReplace(newDBValues(entry, entry.title, componentName, info, userSerial,
+                entry.normalizationInfo));
+    }
+
+    /**
+     * Returns the entry for {@param key} from the memory cache if it has a high-res icon, so that
+     * it can be added to the DB without creating the icon again.
+     * package private
+     */
+    synchronized CacheEntry getReusableEntry(ComponentKey key) {
+        CacheEntry entry = mCache.get(key);
+        // We can't reuse the entry if the high-res icon is not present.
+        if (entry == null || entry.icon == null || entry.isLowRes()) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the current generation of the icons created off the worker thread.
+     * package private
+     */
+    int getUpdateGeneration() {
+        return mUpdateGeneration;
+    }
+
+    /**
+     * Prevents the icons currently being created off the worker thread from being added to the
+     * cache.
+     * package private
+     */
+    synchronized void invalidatePendingUpdates() {
+        mUpdateGeneration++;
+    }
+
+    /**
+     * Creates the icon for {@param object} into {@param entry}, along with the normalization
+     * applied to it. When the icon is being recreated, the normalization persisted with the
+     * previous icon is reused, unless the icon of the package depends on a provider specific
+     * system state. This does not access the memory cache and can be called from any thread.
+     * package private
+     */
+    <T> void loadIconForUpdate(T object, CachingLogic<T> cachingLogic,
+            PackageInfo info, long userSerial, boolean replaceExisting, CacheEntry entry) {
+        NormalizationInfo normalizationInfo = new NormalizationInfo();
+        ComponentName componentName = cachingLogic.getComponent(object);
+        if (replaceExisting
+                && mSystemState.equals(getIconSystemState(componentName.getPackageName()))) {
+            // The icon is being recreated, reuse the normalization of the existing entry if
+            // the package has not changed since. The DB can be replaced on the worker thread.
+            // Icons with a provider specific state, like a dynamic icon, can change without the
+            // package changing, so their normalization is always computed again.
+            synchronized (this) {
+                getNormalizationFromDB(componentName, info, userSerial, normalizationInfo);
+            }
+        }
+        cachingLogic.loadIcon(mContext, object, entry, normalizationInfo);
+        entry.normalizationInfo = normalizationInfo;
+    }
+
+    /**
+     * Returns the row to be persisted in the DB for the provided icon. This flattens the icon and
+     * can be called from any thread.
+     * package private
+     */
+    ContentValues newDBValues(BitmapInfo bitmapInfo, CharSequence title,
+            ComponentName componentName, PackageInfo info, long userSerial,
+            @Nullable NormalizationInfo normalizationInfo) {
+        ContentValues values = newContentValues(bitmapInfo, title.toString(),
                 componentName.getPackageName());
-        addIconToDB(values, componentName, info, userSerial);
+        if (normalizationInfo != null && normalizationInfo.isValid) {
+            values.put(IconDB.COLUMN_ICON_SCALE, normalizationInfo.scale);
+            values.put(IconDB.COLUMN_ICON_MASK_SHAPE, normalizationInfo.isMaskShape ? 1 : 0);
+        }
+        addVersionInfo(values, componentName, info, userSerial);
+        return values;
+    }
+
+    /**
+     * Adds the entries created off the worker thread to the memory cache, and writes all of them
+     * to the DB in a single transaction. The entries are dropped if they were created for a
+     * previous generation.
+     * package private
+     *
+     * @return true if the entries were added
+     */
+    synchronized boolean addPendingEntriesToDBAndMemCache(List<PendingEntry> pendingEntries,
+            int generation) {
+        if (generation != mUpdateGeneration) {
+            return false;
+        }
+        List<ContentValues> values = new ArrayList<>(pendingEntries.size());
+        for (PendingEntry pending : pendingEntries) {
+            pending.entry.title = pending.title;
+            pending.entry.contentDescription = pending.contentDescription;
+            mCache.put(pending.key, pending.entry);
+            values.add(pending.values);
+        }
+        mIconDb.insertOrReplace(values);
+        return true;
     }
 
     /**
@@ -279,11 +382,16 @@ public abstract class BaseIconCache {
      */
     private void addIconToDB(ContentValues values, ComponentName key,
             PackageInfo info, long userSerial) {
+        addVersionInfo(values, key, info, userSerial);
+        mIconDb.insertOrReplace(values);
+    }
+
+    private static void addVersionInfo(ContentValues values, ComponentName key,
+            PackageInfo info, long userSerial) {
         values.put(IconDB.COLUMN_COMPONENT, key.flattenToString());
         values.put(IconDB.COLUMN_USER, userSerial);
         values.put(IconDB.COLUMN_LAST_UPDATED, info.lastUpdateTime);
         values.put(IconDB.COLUMN_VERSION, info.versionCode);
-        mIconDb.insertOrReplace(values);
     }
 
     public synchronized BitmapInfo getDefaultIcon(UserHandle user) {
@@ -366,8 +474,22 @@ public abstract class BaseIconCache {
         return entry;
     }
 
+    /**
+     * Returns the number of bytes used by the icon bitmaps held in the memory cache.
+     */
+    public synchronized long getMemCacheBitmapBytes() {
+        long bytes = 0;
+        for (CacheEntry entry : mCache.values()) {
+            if (entry.icon != null && entry.icon != LOW_RES_ICON) {
+                bytes += entry.icon.getAllocationByteCount();
+            }
+        }
+        return bytes;
+    }
+
     public synchronized void clear() {
         assertWorkerThread();
+        mUpdateGeneration++;
         mIconDb.clear();
     }
 
@@ -462,6 +584,27 @@ public abstract class BaseIconCache {
         return entry;
     }
 
+    private void getNormalizationFromDB(ComponentName componentName, PackageInfo info,
+            long userSerial, NormalizationInfo outInfo) {
+        try (Cursor c = mIconDb.query(
+                new String[] {IconDB.COLUMN_ICON_SCALE, IconDB.COLUMN_ICON_MASK_SHAPE},
+                IconDB.COLUMN_COMPONENT + " = ? AND " + IconDB.COLUMN_USER + " = ? AND "
+                        + IconDB.COLUMN_VERSION + " = ? AND "
+                        + IconDB.COLUMN_LAST_UPDATED + " = ? AND "
+                        + IconDB.COLUMN_ICON_SCALE + " IS NOT NULL",
+                new String[]{
+                        componentName.flattenToString(),
+                        Long.toString(userSerial),
+                        Integer.toString(info.versionCode),
+                        Long.toString(info.lastUpdateTime)})) {
+            if (c.moveToNext()) {
+                outInfo.set(c.getFloat(0), c.getInt(1) != 0);
+            }
+        } catch (SQLiteException e) {
+            Log.d(TAG, "Error reading icon normalization", e);
+        }
+    }
+
     private boolean getEntryFromDB(ComponentKey cacheKey, CacheEntry entry, boolean lowRes) {
         Cursor c = null;
         try {
@@ -491,6 +634,10 @@ public abstract class BaseIconCache {
                         entry.icon = BitmapFactory.decodeByteArray(data, 0, data.length,
                                 mDecodeOptions);
                     } catch (Exception e) { }
+                    if (!c.isNull(3)) {
+                        entry.normalizationInfo = new NormalizationInfo();
+                        entry.normalizationInfo.set(c.getFloat(3), c.getInt(4) != 0);
+                    }
                 }
                 return true;
             }
@@ -504,8 +651,20 @@ public abstract class BaseIconCache {
         return false;
     }
 
+    /**
+     * An entry which was created off the worker thread and is waiting to be added to the memory
+     * cache and the DB.
+     */
+    static final class PendingEntry {
+        ComponentKey key;
+        CacheEntry entry;
+        CharSequence title;
+        CharSequence contentDescription;
+        ContentValues values;
+    }
+
     static final class IconDB extends SQLiteCacheHelper {
-        private final static int RELEASE_VERSION = 26;
+        private final static int RELEASE_VERSION = 27;
 
         public final static String TABLE_NAME = "icons";
         public final static String COLUMN_ROWID = "rowid";
@@ -517,9 +676,12 @@ public abstract class BaseIconCache {
         public final static String COLUMN_ICON_COLOR = "icon_color";
         public final static String COLUMN_LABEL = "label";
         public final static String COLUMN_SYSTEM_STATE = "system_state";
+        public final static String COLUMN_ICON_SCALE = "icon_scale";
+        public final static String COLUMN_ICON_MASK_SHAPE = "icon_mask_shape";
 
         public final static String[] COLUMNS_HIGH_RES = new String[] {
-                IconDB.COLUMN_ICON_COLOR, IconDB.COLUMN_LABEL, IconDB.COLUMN_ICON };
+                IconDB.COLUMN_ICON_COLOR, IconDB.COLUMN_LABEL, IconDB.COLUMN_ICON,
+                IconDB.COLUMN_ICON_SCALE, IconDB.COLUMN_ICON_MASK_SHAPE };
         public final static String[] COLUMNS_LOW_RES = new String[] {
                 IconDB.COLUMN_ICON_COLOR, IconDB.COLUMN_LABEL };
 
@@ -538,6 +700,8 @@ public abstract class BaseIconCache {
                     COLUMN_ICON_COLOR + " INTEGER NOT NULL DEFAULT 0, " +
                     COLUMN_LABEL + " TEXT, " +
                     COLUMN_SYSTEM_STATE + " TEXT, " +
+                    COLUMN_ICON_SCALE + " REAL, " +
+                    COLUMN_ICON_MASK_SHAPE + " INTEGER NOT NULL DEFAULT 0, " +
                     "PRIMARY KEY (" + COLUMN_COMPONENT + ", " + COLUMN_USER + ") " +
                     ");");
         }
@@ -20,6 +20,7 @@ import android.content.Context;
 import android.os.UserHandle;
 
 import com.android.launcher3.icons.BitmapInfo;
+import com.android.launcher3.icons.NormalizationInfo;
 
 public interface CachingLogic<T> {
 
@@ -30,4 +31,13 @@ public interface CachingLogic<T> {
     CharSequence getLabel(T object);
 
     void loadIcon(Context context, T object, BitmapInfo target);
+
+    /**
+     * Same as {@link #loadIcon(Context, Object, BitmapInfo)}, but reuses the provided
+     * normalization result if it is valid, or populates it otherwise.
+     */
+    default void loadIcon(Context context, T object, BitmapInfo target,
+            NormalizationInfo normalizationInfo) {
+        loadIcon(context, object, target);
+    }
 }
@@ -21,14 +21,19 @@ import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteException;
+import android.os.Process;
 import android.os.SystemClock;
 import android.os.UserHandle;
 import android.text.TextUtils;
 import android.util.Log;
 import android.util.SparseBooleanArray;
 
+import com.android.launcher3.icons.cache.BaseIconCache.CacheEntry;
 import com.android.launcher3.icons.cache.BaseIconCache.IconDB;
+import com.android.launcher3.icons.cache.BaseIconCache.PendingEntry;
+import com.android.launcher3.util.ComponentKey;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -36,6 +41,10 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Utility class to handle updating the Icon cache
@@ -58,6 +67,28 @@ public class IconCacheUpdateHandler {
 
     private static final Object ICON_UPDATE_TOKEN = new Object();
 
+    /**
+     * Minimum number of icons to create for a user, above which icons are created in parallel.
+     * This is typically the case when all the icons are recreated, for eg, after a locale or
+     * icon shape change.
+     */
+    private static final int PARALLEL_UPDATE_THRESHOLD = 16;
+    /** Number of created icons which are added to the DB in a single transaction */
+    private static final int COMMIT_BATCH_SIZE = 32;
+
+    private static final int ICON_WORKER_COUNT =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final ThreadPoolExecutor ICON_EXECUTOR = new ThreadPoolExecutor(
+            ICON_WORKER_COUNT, ICON_WORKER_COUNT, 1, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }, "icon-update-worker"));
+
+    static {
+        ICON_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
     private final HashMap<String, PackageInfo> mPkgInfoMap;
     private final BaseIconCache mIconCache;
 
@@ -73,6 +104,7 @@ public class IconCacheUpdateHandler {
 
         // Remove all active icon update tasks.
         mIconCache.mWorkerHandler.removeCallbacksAndMessages(ICON_UPDATE_TOKEN);
+        mIconCache.invalidatePendingUpdates();
 
         createPackageInfoMap();
     }
@@ -195,7 +227,10 @@ public class IconCacheUpdateHandler {
         }
 
         // Insert remaining apps.
-        if (!componentMap.isEmpty() || !appsToUpdate.isEmpty()) {
+        if (componentMap.size() + appsToUpdate.size() >= PARALLEL_UPDATE_THRESHOLD) {
+            new ParallelIconUpdateTask<>(userSerial, user, new ArrayList<>(componentMap.values()),
+                    appsToUpdate, cachingLogic, onUpdateCallback).start();
+        } else if (!componentMap.isEmpty() || !appsToUpdate.isEmpty()) {
             Stack<T> appsToAdd = new Stack<>();
             appsToAdd.addAll(componentMap.values());
             new SerializedIconUpdateTask(userSerial, user, appsToAdd, appsToUpdate, cachingLogic,
@@ -296,6 +331,142 @@ public class IconCacheUpdateHandler {
         }
     }
 
+    /**
+     * Creates the icons of a large number of apps in parallel on {@link #ICON_EXECUTOR}, each
+     * worker using its own icon factory, and adds them to the memory cache and the DB in batches
+     * on the worker thread. The icons are dropped if the cache is invalidated while they are
+     * being created, and the callback is always notified when the run ends.
+     */
+    private class ParallelIconUpdateTask<T> {
+        private final long mUserSerial;
+        private final UserHandle mUserHandle;
+        private final List<T> mAppsToAdd;
+        private final List<T> mAppsToUpdate;
+        private final CachingLogic<T> mCachingLogic;
+        private final OnUpdateCallback mOnUpdateCallback;
+
+        private final HashSet<String> mUpdatedPackages = new HashSet<>();
+        private final ArrayList<PendingEntry> mPendingEntries = new ArrayList<>();
+        private final Runnable mCommitRunnable = this::commitPendingEntries;
+        private final AtomicInteger mRemainingCount = new AtomicInteger();
+
+        private int mGeneration;
+        private long mStartTime;
+        private int mTotalCount;
+
+        ParallelIconUpdateTask(long userSerial, UserHandle userHandle,
+                List<T> appsToAdd, List<T> appsToUpdate, CachingLogic<T> cachingLogic,
+                OnUpdateCallback onUpdateCallback) {
+            mUserSerial = userSerial;
+            mUserHandle = userHandle;
+            mAppsToAdd = appsToAdd;
+            mAppsToUpdate = appsToUpdate;
+            mCachingLogic = cachingLogic;
+            mOnUpdateCallback = onUpdateCallback;
+        }
+
+        void start() {
+            mGeneration = mIconCache.getUpdateGeneration();
+            mStartTime = SystemClock.uptimeMillis();
+            List<Runnable> tasks = new ArrayList<>(mAppsToAdd.size() + mAppsToUpdate.size());
+            for (T app : mAppsToUpdate) {
+                String pkg = mCachingLogic.getComponent(app).getPackageName();
+                mUpdatedPackages.add(pkg);
+                PackageInfo info = mPkgInfoMap.get(pkg);
+                tasks.add(() -> createEntry(app, info, null, true /* replaceExisting */));
+            }
+            for (T app : mAppsToAdd) {
+                ComponentName cn = mCachingLogic.getComponent(app);
+                PackageInfo info = mPkgInfoMap.get(cn.getPackageName());
+                // We do not check the mPkgInfoMap when generating the mAppsToAdd. Although every
+                // app should have package info, this is not guaranteed by the api
+                if (info != null) {
+                    CacheEntry existing = mIconCache.getReusableEntry(
+                            new ComponentKey(cn, mUserHandle));
+                    tasks.add(() -> createEntry(app, info, existing, false /* replaceExisting */));
+                }
+            }
+
+            mTotalCount = tasks.size();
+            mRemainingCount.set(mTotalCount);
+            for (Runnable task : tasks) {
+                ICON_EXECUTOR.execute(task);
+            }
+        }
+
+        /**
+         * Creates the icon for the app, unless an existing entry is provided, along with its DB
+         * row. Called on the icon worker threads.
+         */
+        private void createEntry(T app, PackageInfo info, CacheEntry existing,
+                boolean replaceExisting) {
+            PendingEntry pending = null;
+            // The icons are dropped anyway if the cache was invalidated since the run started
+            if (mGeneration == mIconCache.getUpdateGeneration()) {
+                pending = new PendingEntry();
+                try {
+                    ComponentName cn = mCachingLogic.getComponent(app);
+                    pending.key = new ComponentKey(cn, mUserHandle);
+                    if (existing != null) {
+                        pending.entry = existing;
+                    } else {
+                        pending.entry = new CacheEntry();
+                        mIconCache.loadIconForUpdate(app, mCachingLogic, info, mUserSerial,
+                                replaceExisting, pending.entry);
+                    }
+                    pending.title = mCachingLogic.getLabel(app);
+                    pending.contentDescription = mIconCache.mPackageManager.getUserBadgedLabel(
+                            pending.title, mUserHandle);
+                    pending.values = mIconCache.newDBValues(pending.entry, pending.title, cn, info,
+                            mUserSerial, pending.entry.normalizationInfo);
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to create icon", e);
+                    pending = null;
+                }
+            }
+
+            boolean shouldCommit;
+            synchronized (mPendingEntries) {
+                if (pending != null) {
+                    mPendingEntries.add(pending);
+                }
+                shouldCommit = mRemainingCount.decrementAndGet() == 0
+                        || mPendingEntries.size() >= COMMIT_BATCH_SIZE;
+            }
+            if (shouldCommit) {
+                // Not posted with ICON_UPDATE_TOKEN, so that a new update handler does not remove
+                // the last commit, which notifies the callback.
+                mIconCache.mWorkerHandler.post(mCommitRunnable);
+            }
+        }
+
+        /**
+         * Adds the created entries to the memory cache and the DB. Called on the worker thread.
+         */
+        private void commitPendingEntries() {
+            ArrayList<PendingEntry> entries;
+            synchronized (mPendingEntries) {
+                entries = new ArrayList<>(mPendingEntries);
+                mPendingEntries.clear();
+            }
+            if (!entries.isEmpty()
+                    && !mIconCache.addPendingEntriesToDBAndMemCache(entries, mGeneration)) {
+                Log.d(TAG, "Dropped " + entries.size() + " icons created for an invalidated cache");
+            }
+
+            if (mRemainingCount.get() == 0 && mTotalCount > 0) {
+                long duration = Math.max(1, SystemClock.uptimeMillis() - mStartTime);
+                Log.d(TAG, "Created " + mTotalCount + " icons in " + duration + "ms ("
+                        + (mTotalCount * 1000 / duration) + " icons/s) using "
+                        + ICON_WORKER_COUNT + " workers");
+                mTotalCount = 0;
+                if (!mUpdatedPackages.isEmpty()) {
+                    mOnUpdateCallback.onPackageIconsUpdated(mUpdatedPackages, mUserHandle);
+                }
+            }
+        }
+    }
+
     public interface OnUpdateCallback {
 
         void onPackageIconsUpdated(HashSet<String> updatedPackages, UserHandle user);
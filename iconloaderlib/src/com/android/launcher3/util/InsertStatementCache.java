@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Compiles and reuses insert statements for a table, one for every set of columns inserted.
+ * This avoids building and compiling the SQL for every row, as
+ * {@link SQLiteDatabase#insertWithOnConflict} does.
+ *
+ * The class is not thread safe, and {@link #close()} must be called before the table is dropped
+ * or the database is closed.
+ */
+public class InsertStatementCache {
+
+    private final String mTable;
+    private final boolean mReplace;
+    private final HashMap<String, CompiledInsert> mStatements = new HashMap<>();
+
+    private SQLiteDatabase mDb;
+
+    /**
+     * @param replace if true, rows conflicting with the inserted rows are replaced
+     */
+    public InsertStatementCache(String table, boolean replace) {
+        mTable = table;
+        mReplace = replace;
+    }
+
+    /**
+     * Inserts {@param values} in the table.
+     * @return the row id of the inserted row
+     * @throws android.database.SQLException if the row could not be inserted
+     */
+    public long insert(SQLiteDatabase db, ContentValues values) {
+        if (mDb != db) {
+            close();
+            mDb = db;
+        }
+
+        Set<String> columns = values.keySet();
+        String key = TextUtils.join(",", columns);
+        CompiledInsert insert = mStatements.get(key);
+        if (insert == null) {
+            insert = new CompiledInsert(db, columns.toArray(new String[columns.size()]));
+            mStatements.put(key, insert);
+        }
+        return insert.execute(values);
+    }
+
+    public void close() {
+        for (CompiledInsert insert : mStatements.values()) {
+            insert.statement.close();
+        }
+        mStatements.clear();
+        mDb = null;
+    }
+
+    private class CompiledInsert {
+
+        final String[] columns;
+        final SQLiteStatement statement;
+
+        CompiledInsert(SQLiteDatabase db, String[] columns) {
+            this.columns = columns;
+
+            StringBuilder sql = new StringBuilder("INSERT ");
+            if (mReplace) {
+                sql.append("OR REPLACE ");
+            }
+            sql.append("INTO ").append(mTable).append(" (");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i > 0 ? "," : "").append(columns[i]);
+            }
+            sql.append(") VALUES (");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i > 0 ? ",?" : "?");
+            }
+            sql.append(')');
+            statement = db.compileStatement(sql.toString());
+        }
+
+        long execute(ContentValues values) {
+            for (int i = 0; i < columns.length; i++) {
+                DatabaseUtils.bindObjectToProgram(statement, i + 1, values.get(columns[i]));
+            }
+            try {
+                return statement.executeInsert();
+            } finally {
+                statement.clearBindings();
+            }
+        }
+    }
+}
@@ -9,6 +9,8 @@ import android.database.sqlite.SQLiteFullException;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
 
+import java.util.List;
+
 /**
  * An extension of {@link SQLiteOpenHelper} with utility methods for a single table cache DB.
  * Any exception during write operations are ignored, and any version change causes a DB reset.
@@ -20,6 +22,7 @@ public abstract class SQLiteCacheHelper {
 
     private final String mTableName;
     private final MySQLiteOpenHelper mOpenHelper;
+    private final InsertStatementCache mInsertStatements;
 
     private boolean mIgnoreWrites;
 
@@ -29,6 +32,10 @@ public abstract class SQLiteCacheHelper {
         }
         mTableName = tableName;
         mOpenHelper = new MySQLiteOpenHelper(context, name, version);
+        // The cache is written in bulk while being read by other threads, and it is never backed
+        // up, so write-ahead logging is safe to use.
+        mOpenHelper.setWriteAheadLoggingEnabled(true);
+        mInsertStatements = new InsertStatementCache(tableName, true /* replace */);
 
         mIgnoreWrites = false;
     }
@@ -57,8 +64,38 @@ public abstract class SQLiteCacheHelper {
             return;
         }
         try {
-            mOpenHelper.getWritableDatabase().insertWithOnConflict(
-                    mTableName, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+            synchronized (mInsertStatements) {
+                mInsertStatements.insert(db, values);
+            }
+        } catch (SQLiteFullException e) {
+            onDiskFull(e);
+        } catch (SQLiteException e) {
+            Log.d(TAG, "Ignoring sqlite exception", e);
+        }
+    }
+
+    /**
+     * Same as {@link #insertOrReplace(ContentValues)}, but inserts all the rows in a single
+     * transaction.
+     */
+    public void insertOrReplace(List<ContentValues> valuesList) {
+        if (mIgnoreWrites || valuesList.isEmpty()) {
+            return;
+        }
+        try {
+            SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                synchronized (mInsertStatements) {
+                    for (ContentValues values : valuesList) {
+                        mInsertStatements.insert(db, values);
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
         } catch (SQLiteFullException e) {
             onDiskFull(e);
         } catch (SQLiteException e) {
@@ -80,13 +117,21 @@ public abstract class SQLiteCacheHelper {
     }
 
     public void clear() {
+        closeInsertStatements();
         mOpenHelper.clearDB(mOpenHelper.getWritableDatabase());
     }
 
     public void close() {
+        closeInsertStatements();
         mOpenHelper.close();
     }
 
+    private void closeInsertStatements() {
+        synchronized (mInsertStatements) {
+            mInsertStatements.close();
+        }
+    }
+
     protected abstract void onCreateTable(SQLiteDatabase db);
 
     /**
@@ -118,6 +163,7 @@ public abstract class SQLiteCacheHelper {
         }
 
         private void clearDB(SQLiteDatabase db) {
+            closeInsertStatements();
             db.execSQL("DROP TABLE IF EXISTS " + mTableName);
             onCreate(db);
         }
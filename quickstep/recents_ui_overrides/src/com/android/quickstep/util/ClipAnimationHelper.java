@@ -43,15 +43,12 @@ import com.android.quickstep.views.RecentsView;
 import com.android.quickstep.views.TaskThumbnailView;
 import com.android.quickstep.views.TaskView;
 import com.android.systemui.shared.recents.ISystemUiProxy;
-import com.android.systemui.shared.recents.utilities.RectFEvaluator;
 import com.android.systemui.shared.system.RemoteAnimationTargetCompat;
 import com.android.systemui.shared.system.SyncRtSurfaceTransactionApplierCompat;
 import com.android.systemui.shared.system.SyncRtSurfaceTransactionApplierCompat.SurfaceParams;
 import com.android.systemui.shared.system.TransactionCompat;
 import com.android.systemui.shared.system.WindowManagerWrapper;
 
-import java.util.function.BiFunction;
-
 /**
  * Utility class to handle window clip animation
  */
@@ -79,7 +76,8 @@ public class ClipAnimationHelper {
 
     // The clip rect in source app window coordinates
     private final RectF mClipRectF = new RectF();
-    private final RectFEvaluator mRectFEvaluator = new RectFEvaluator();
+    // The rect interpolated between the source and target rects, reused for every frame
+    private final RectF mCurrentRect = new RectF();
     private final Matrix mTmpMatrix = new Matrix();
     private final Rect mTmpRect = new Rect();
     private final RectF mTmpRectF = new RectF();
@@ -99,8 +97,7 @@ public class ClipAnimationHelper {
     // Whether to boost the opening animation target layers, or the closing
     private int mBoostModeTargetLayers = -1;
 
-    private BiFunction<RemoteAnimationTargetCompat, Float, Float> mTaskAlphaCallback =
-            (t, a1) -> a1;
+    private TaskAlphaCallback mTaskAlphaCallback = (t, a1) -> a1;
 
     public ClipAnimationHelper(Context context) {
         mWindowCornerRadius = getWindowCornerRadius(context.getResources());
@@ -157,14 +154,23 @@ public class ClipAnimationHelper {
         return applyTransform(targetSet, params, true /* launcherOnTop */);
     }
 
+    /**
+     * Applies the transform for {@param params} to the app targets. This is called for every
+     * frame of the gesture, so the returned rect is owned by the helper and is only valid until
+     * the next call.
+     */
     public RectF applyTransform(RemoteAnimationTargetSet targetSet, TransformParams params,
             boolean launcherOnTop) {
         float progress = params.progress;
         if (params.currentRect == null) {
-            RectF currentRect;
+            RectF currentRect = mCurrentRect;
             mTmpRectF.set(mTargetRect);
             Utilities.scaleRectFAboutCenter(mTmpRectF, params.offsetScale);
-            currentRect = mRectFEvaluator.evaluate(progress, mSourceRect, mTmpRectF);
+            currentRect.set(
+                    Utilities.mapRange(progress, mSourceRect.left, mTmpRectF.left),
+                    Utilities.mapRange(progress, mSourceRect.top, mTmpRectF.top),
+                    Utilities.mapRange(progress, mSourceRect.right, mTmpRectF.right),
+                    Utilities.mapRange(progress, mSourceRect.bottom, mTmpRectF.bottom));
             currentRect.offset(params.offsetX, 0);
 
             // Don't clip past progress > 1.
@@ -180,6 +186,8 @@ public class ClipAnimationHelper {
             params.setCurrentRectAndTargetAlpha(currentRect, 1);
         }
 
+        // The surface params are still created for every frame: they are immutable, and the sync
+        // applier only consumes the array on a later frame, so it can not be reused here.
         SurfaceParams[] surfaceParams = new SurfaceParams[targetSet.unfilteredApps.length];
         for (int i = 0; i < targetSet.unfilteredApps.length; i++) {
             RemoteAnimationTargetCompat app = targetSet.unfilteredApps[i];
@@ -192,7 +200,7 @@ public class ClipAnimationHelper {
             float cornerRadius = 0f;
             float scale = Math.max(params.currentRect.width(), mTargetRect.width()) / crop.width();
             if (app.mode == targetSet.targetMode) {
-                alpha = mTaskAlphaCallback.apply(app, params.targetAlpha);
+                alpha = mTaskAlphaCallback.getAlpha(app, params.targetAlpha);
                 if (app.activityType != RemoteAnimationTargetCompat.ACTIVITY_TYPE_HOME) {
                     mTmpMatrix.setRectToRect(mSourceRect, params.currentRect, ScaleToFit.FILL);
                     mTmpMatrix.postTranslate(app.position.x, app.position.y);
@@ -247,8 +255,7 @@ public class ClipAnimationHelper {
         }
     }
 
-    public void setTaskAlphaCallback(
-            BiFunction<RemoteAnimationTargetCompat, Float, Float> callback) {
+    public void setTaskAlphaCallback(TaskAlphaCallback callback) {
         mTaskAlphaCallback = callback;
     }
 
@@ -357,6 +364,13 @@ public class ClipAnimationHelper {
         return mCurrentCornerRadius;
     }
 
+    /**
+     * Returns the alpha of an app target. Uses primitives as it is called for every frame.
+     */
+    public interface TaskAlphaCallback {
+        float getAlpha(RemoteAnimationTargetCompat app, float expectedAlpha);
+    }
+
     public static class TransformParams {
         float progress;
         public float offsetX;
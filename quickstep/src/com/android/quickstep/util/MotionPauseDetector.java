@@ -50,11 +50,12 @@ public class MotionPauseDetector {
     private final boolean mMakePauseHarderToTrigger;
     private final Context mContext;
 
-    private Long mPreviousTime = null;
-    private Float mPreviousPosition = null;
-    private Float mPreviousVelocity = null;
-
-    private Float mFirstPosition = null;
+    // Number of positions added since the last clear, capped at 2. Primitives are used for the
+    // previous values as addPosition is called for every move event.
+    private int mPositionCount;
+    private long mPreviousTime;
+    private float mPreviousPosition;
+    private float mPreviousVelocity;
 
     private OnMotionPauseListener mOnMotionPauseListener;
     private boolean mIsPaused;
@@ -106,20 +107,21 @@ public class MotionPauseDetector {
      * TODO: Use historical positions as well, e.g. {@link MotionEvent#getHistoricalY(int, int)}.
      */
     public void addPosition(float position, long time) {
-        if (mFirstPosition == null) {
-            mFirstPosition = position;
-        }
         mForcePauseTimeout.setAlarm(mMakePauseHarderToTrigger
                 ? HARDER_TRIGGER_TIMEOUT
                 : FORCE_PAUSE_TIMEOUT);
-        if (mPreviousTime != null && mPreviousPosition != null) {
+        if (mPositionCount > 0) {
             long changeInTime = Math.max(1, time - mPreviousTime);
             float changeInPosition = position - mPreviousPosition;
             float velocity = changeInPosition / changeInTime;
-            if (mPreviousVelocity != null) {
+            if (mPositionCount > 1) {
                 checkMotionPaused(velocity, mPreviousVelocity, time);
+            } else {
+                mPositionCount = 2;
             }
             mPreviousVelocity = velocity;
+        } else {
+            mPositionCount = 1;
         }
         mPreviousTime = time;
         mPreviousPosition = position;
@@ -178,10 +180,7 @@ public class MotionPauseDetector {
     }
 
     public void clear() {
-        mPreviousTime = null;
-        mPreviousPosition = null;
-        mPreviousVelocity = null;
-        mFirstPosition = null;
+        mPositionCount = 0;
         setOnMotionPauseListener(null);
         mIsPaused = mHasEverBeenPaused = false;
         mSlowStartTime = 0;
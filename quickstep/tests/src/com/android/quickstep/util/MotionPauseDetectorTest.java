@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.SmallTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Replays swipe up traces through {@link MotionPauseDetector}, which processes every move event
+ * of the quickstep gestures.
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class MotionPauseDetectorTest {
+
+    private static final String TAG = "MotionPauseDetectorTest";
+
+    private static final int FRAME_MS = 8;
+    private static final int SWIPE_EVENT_COUNT = 60;
+    private static final int HOLD_EVENT_COUNT = 30;
+    private static final int REPLAY_ITERATIONS = 50;
+    // Generous bound on the average time to process an event, to catch gross regressions.
+    private static final long MAX_EVENT_PROCESSING_NS = 200_000;
+
+    private MotionPauseDetector mDetector;
+    private boolean mIsPaused;
+
+    @Before
+    public void setup() {
+        // The detector posts its timeout on the thread it is created on.
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> mDetector =
+                new MotionPauseDetector(InstrumentationRegistry.getTargetContext()));
+    }
+
+    /**
+     * Returns the positions of a swipe up which moves quickly and then holds, as reported by
+     * the input consumers, one event per frame.
+     */
+    private static float[] createSwipeAndHoldTrace() {
+        float[] positions = new float[SWIPE_EVENT_COUNT + HOLD_EVENT_COUNT];
+        for (int i = 0; i < SWIPE_EVENT_COUNT; i++) {
+            positions[i] = -i * 40;
+        }
+        for (int i = SWIPE_EVENT_COUNT; i < positions.length; i++) {
+            positions[i] = positions[SWIPE_EVENT_COUNT - 1];
+        }
+        return positions;
+    }
+
+    private void replay(float[] positions, long startTime, int start, int end) {
+        for (int i = start; i < end; i++) {
+            mDetector.addPosition(positions[i], startTime + i * FRAME_MS);
+        }
+    }
+
+    @Test
+    public void testSwipeAndHold_pauses() {
+        float[] positions = createSwipeAndHoldTrace();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            mDetector.setOnMotionPauseListener(isPaused -> mIsPaused = isPaused);
+
+            replay(positions, 0, 0, SWIPE_EVENT_COUNT);
+            assertFalse(mIsPaused);
+            replay(positions, 0, SWIPE_EVENT_COUNT, positions.length);
+            assertTrue(mIsPaused);
+            mDetector.clear();
+        });
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testReplaySwipe_doesNotAllocate() {
+        float[] positions = createSwipeAndHoldTrace();
+        long[] result = new long[2];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            // Replay once so that the timeout callback is already posted. Only the swipe is
+            // replayed, as a pause is reported once per gesture and notifies the test
+            // accessibility service.
+            replay(positions, 0, 0, SWIPE_EVENT_COUNT);
+            mDetector.clear();
+
+            Debug.startAllocCounting();
+            try {
+                for (int n = 0; n < REPLAY_ITERATIONS; n++) {
+                    Debug.resetThreadAllocCount();
+                    long start = System.nanoTime();
+                    replay(positions, n * SWIPE_EVENT_COUNT * FRAME_MS, 0, SWIPE_EVENT_COUNT);
+                    result[0] += System.nanoTime() - start;
+                    result[1] += Debug.getThreadAllocCount();
+                    mDetector.clear();
+                }
+            } finally {
+                Debug.stopAllocCounting();
+            }
+        });
+
+        long eventCount = (long) REPLAY_ITERATIONS * SWIPE_EVENT_COUNT;
+        Log.d(TAG, "Replayed " + eventCount + " events: " + result[0] / eventCount + "ns/event");
+        assertEquals("Replaying events should not allocate", 0, result[1]);
+        assertTrue(result[0] / eventCount < MAX_EVENT_PROCESSING_NS);
+    }
+}
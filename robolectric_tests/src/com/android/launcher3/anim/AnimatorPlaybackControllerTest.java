@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.anim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.animation.AnimatorSet;
+import android.animation.ObjectAnimator;
+import android.animation.TimeInterpolator;
+import android.util.Log;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+/**
+ * Robolectric unit tests for {@link AnimatorPlaybackController}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AnimatorPlaybackControllerTest {
+
+    private static final String TAG = "AnimatorPlaybackControllerTest";
+
+    private static final long DURATION = 1000;
+    private static final int VIEW_COUNT = 60;
+    private static final int FRAMES = 60;
+
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int BENCHMARK_ITERATIONS = 20;
+    // Generous bound on the scrubbing time relative to the default playback, to catch gross
+    // regressions
+    private static final long MAX_COMPILED_TIME_RATIO = 2;
+
+    private static final TimeInterpolator[] INTERPOLATORS = new TimeInterpolator[] {
+            Interpolators.LINEAR, Interpolators.ACCEL_2, Interpolators.DEACCEL_2,
+            Interpolators.FAST_OUT_SLOW_IN, Interpolators.clampToProgress(
+                    Interpolators.ACCEL, 0.2f, 0.6f)};
+
+    /**
+     * Creates an animation similar to a state transition, with a nested set for each view and
+     * child animations of different durations.
+     */
+    private static AnimatorSet createAnimation(View[] views) {
+        AnimatorSet anim = new AnimatorSet();
+        for (int i = 0; i < views.length; i++) {
+            views[i] = new View(RuntimeEnvironment.application);
+            AnimatorSet viewAnim = new AnimatorSet();
+            viewAnim.play(ObjectAnimator.ofFloat(views[i], View.ALPHA, 1, 0)
+                    .setDuration(DURATION * (i % 4 + 1) / 4));
+            viewAnim.play(ObjectAnimator.ofFloat(views[i], View.TRANSLATION_Y, 0, 100 + i)
+                    .setDuration(DURATION));
+            viewAnim.play(ObjectAnimator.ofFloat(views[i], View.SCALE_X, 1, 0.5f)
+                    .setDuration(DURATION / 2));
+            viewAnim.setInterpolator(INTERPOLATORS[i % INTERPOLATORS.length]);
+            anim.play(viewAnim);
+        }
+        return anim;
+    }
+
+    private static float[] getScrubFractions() {
+        // Drag forward past the end, then back to the start
+        float[] fractions = new float[FRAMES * 2];
+        for (int i = 0; i < FRAMES; i++) {
+            fractions[i] = 1.2f * i / (FRAMES - 1);
+            fractions[FRAMES + i] = 1 - (float) i / (FRAMES - 1);
+        }
+        return fractions;
+    }
+
+    @Test
+    public void compiledPlaybackMatchesDefault() {
+        View[] views = new View[VIEW_COUNT];
+        View[] compiledViews = new View[VIEW_COUNT];
+        AnimatorPlaybackController controller =
+                AnimatorPlaybackController.wrap(createAnimation(views), DURATION, null, false);
+        AnimatorPlaybackController compiledController = AnimatorPlaybackController.wrap(
+                createAnimation(compiledViews), DURATION, null, true);
+
+        for (float fraction : getScrubFractions()) {
+            controller.setPlayFraction(fraction);
+            compiledController.setPlayFraction(fraction);
+            for (int i = 0; i < VIEW_COUNT; i++) {
+                assertEquals(views[i].getAlpha(), compiledViews[i].getAlpha(), 0);
+                assertEquals(views[i].getTranslationY(), compiledViews[i].getTranslationY(), 0);
+                assertEquals(views[i].getScaleX(), compiledViews[i].getScaleX(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void compiledPlaybackAppliesNewInterpolator() {
+        View[] views = new View[1];
+        AnimatorPlaybackController controller =
+                AnimatorPlaybackController.wrap(createAnimation(views), DURATION, null, true);
+        controller.setPlayFraction(1);
+        controller.setPlayFraction(0.5f);
+        assertEquals(0.5f * 100, views[0].getTranslationY(), 0.01f);
+
+        // The play time is unchanged, but the values need to be applied again
+        controller.dispatchSetInterpolator(Interpolators.ACCEL_2);
+        controller.setPlayFraction(0.5f);
+        assertEquals(Interpolators.ACCEL_2.getInterpolation(0.5f) * 100,
+                views[0].getTranslationY(), 0.01f);
+    }
+
+    @Test
+    public void compiledPlaybackSkipsFinishedChildren() {
+        View view = new View(RuntimeEnvironment.application);
+        AnimatorSet anim = new AnimatorSet();
+        ObjectAnimator shortAnim = ObjectAnimator.ofFloat(view, View.ALPHA, 1, 0)
+                .setDuration(DURATION / 4);
+        anim.play(shortAnim);
+        anim.play(ObjectAnimator.ofFloat(view, View.TRANSLATION_Y, 0, 100)
+                .setDuration(DURATION));
+        int[] updateCount = new int[1];
+        shortAnim.addUpdateListener(animation -> updateCount[0]++);
+
+        AnimatorPlaybackController controller =
+                AnimatorPlaybackController.wrap(anim, DURATION, null, true);
+        controller.setPlayFraction(0.5f);
+        assertEquals(1, updateCount[0]);
+        controller.setPlayFraction(0.6f);
+        controller.setPlayFraction(0.9f);
+        assertEquals(1, updateCount[0]);
+        assertEquals(0, view.getAlpha(), 0);
+    }
+
+    @Test
+    public void compiledPlaybackMatchesDefaultForSharedProperty() {
+        View view = new View(RuntimeEnvironment.application);
+        View compiledView = new View(RuntimeEnvironment.application);
+        AnimatorPlaybackController controller = AnimatorPlaybackController.wrap(
+                createSharedPropertyAnimation(view), DURATION, null, false);
+        AnimatorPlaybackController compiledController = AnimatorPlaybackController.wrap(
+                createSharedPropertyAnimation(compiledView), DURATION, null, true);
+
+        for (float fraction : getScrubFractions()) {
+            controller.setPlayFraction(fraction);
+            compiledController.setPlayFraction(fraction);
+            assertEquals(view.getAlpha(), compiledView.getAlpha(), 0);
+        }
+    }
+
+    @Test
+    public void compiledScrubbingIsNotSlowerThanDefault() {
+        float[] fractions = getScrubFractions();
+        long defaultTime = 0;
+        long compiledTime = 0;
+        for (int n = 0; n < WARMUP_ITERATIONS + BENCHMARK_ITERATIONS; n++) {
+            AnimatorPlaybackController controller = AnimatorPlaybackController.wrap(
+                    createAnimation(new View[VIEW_COUNT]), DURATION, null, false);
+            AnimatorPlaybackController compiledController = AnimatorPlaybackController.wrap(
+                    createAnimation(new View[VIEW_COUNT]), DURATION, null, true);
+
+            long start = System.nanoTime();
+            for (float fraction : fractions) {
+                controller.setPlayFraction(fraction);
+            }
+            long middle = System.nanoTime();
+            for (float fraction : fractions) {
+                compiledController.setPlayFraction(fraction);
+            }
+            long end = System.nanoTime();
+            if (n >= WARMUP_ITERATIONS) {
+                defaultTime += middle - start;
+                compiledTime += end - middle;
+            }
+        }
+
+        int frames = BENCHMARK_ITERATIONS * fractions.length;
+        Log.d(TAG, "Scrubbing " + VIEW_COUNT * 3 + " animations: default="
+                + defaultTime / frames + "ns/frame, compiled=" + compiledTime / frames
+                + "ns/frame");
+        assertTrue(compiledTime < defaultTime * MAX_COMPILED_TIME_RATIO);
+    }
+
+    /**
+     * Creates an animation where a short child sets the same property after a longer child, so
+     * the short child sets the final value even once it has reached its end.
+     */
+    private static AnimatorSet createSharedPropertyAnimation(View view) {
+        AnimatorSet anim = new AnimatorSet();
+        anim.play(ObjectAnimator.ofFloat(view, View.ALPHA, 0, 1).setDuration(DURATION));
+        anim.play(ObjectAnimator.ofFloat(view, View.ALPHA, 1, 0.2f).setDuration(DURATION / 2));
+        return anim;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.os.Process;
+import android.os.UserHandle;
+import android.util.Log;
+
+import com.android.launcher3.ItemInfo;
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.WorkspaceItemInfo;
+import com.android.launcher3.util.ItemInfoMatcher;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.HashSet;
+
+/**
+ * Tests for {@link BgDataModel#filterItemInfos(ItemInfoMatcher)}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BgDataModelFilterTest {
+
+    private static final String TAG = "BgDataModelFilterTest";
+
+    private static final int ITEM_COUNT = 1000;
+    private static final int PACKAGE_COUNT = 100;
+
+    private static final int WARMUP_ITERATIONS = 250;
+    private static final int BENCHMARK_ITERATIONS = 250;
+
+    private UserHandle mUser;
+    private BgDataModel mModel;
+
+    @Before
+    public void setup() {
+        mUser = Process.myUserHandle();
+        mModel = new BgDataModel();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            WorkspaceItemInfo info = new WorkspaceItemInfo();
+            info.id = i + 1;
+            info.itemType = Favorites.ITEM_TYPE_APPLICATION;
+            info.container = Favorites.CONTAINER_DESKTOP;
+            info.screenId = i / 20;
+            info.cellX = i % 5;
+            info.cellY = (i / 5) % 4;
+            info.user = mUser;
+            info.intent = new Intent(Intent.ACTION_MAIN).setComponent(new ComponentName(
+                    getPackage(i % PACKAGE_COUNT), "Activity" + i));
+            mModel.addItem(RuntimeEnvironment.application, info, false);
+        }
+    }
+
+    private static String getPackage(int index) {
+        return "com.example.app" + index;
+    }
+
+    @Test
+    public void packageMatcherMatchesSameItems() {
+        HashSet<String> packages = new HashSet<>();
+        packages.add(getPackage(3));
+        packages.add(getPackage(42));
+        ItemInfoMatcher matcher = ItemInfoMatcher.ofPackages(packages, mUser);
+
+        HashSet<ItemInfo> expected = matcher.filterItemInfos(mModel.itemsIdMap);
+        assertEquals(2 * ITEM_COUNT / PACKAGE_COUNT, expected.size());
+        assertEquals(expected, mModel.filterItemInfos(matcher));
+    }
+
+    @Test
+    public void combinedMatcherMatchesSameItems() {
+        HashSet<String> packages = new HashSet<>();
+        packages.add(getPackage(7));
+        HashSet<ComponentName> components = new HashSet<>();
+        components.add(new ComponentName(getPackage(8), "Activity8"));
+        ItemInfoMatcher matcher = ItemInfoMatcher.ofPackages(packages, mUser)
+                .or(ItemInfoMatcher.ofComponents(components, mUser));
+
+        HashSet<ItemInfo> expected = matcher.filterItemInfos(mModel.itemsIdMap);
+        assertEquals(ITEM_COUNT / PACKAGE_COUNT + 1, expected.size());
+        assertEquals(expected, mModel.filterItemInfos(matcher));
+    }
+
+    @Test
+    public void removedItemsAreNotMatched() {
+        HashSet<String> packages = new HashSet<>();
+        packages.add(getPackage(0));
+        ItemInfoMatcher matcher = ItemInfoMatcher.ofPackages(packages, mUser);
+
+        mModel.removeItem(RuntimeEnvironment.application, mModel.itemsIdMap.get(1));
+        assertEquals(ITEM_COUNT / PACKAGE_COUNT - 1, mModel.filterItemInfos(matcher).size());
+    }
+
+    @Test
+    public void addedItemsAreMatched() {
+        HashSet<String> packages = new HashSet<>();
+        packages.add(getPackage(1));
+        packages.add("com.example.unknown");
+        ItemInfoMatcher matcher = ItemInfoMatcher.ofPackages(packages, mUser);
+
+        WorkspaceItemInfo info = new WorkspaceItemInfo();
+        info.id = ITEM_COUNT + 1;
+        info.itemType = Favorites.ITEM_TYPE_APPLICATION;
+        info.container = Favorites.CONTAINER_HOTSEAT;
+        info.user = mUser;
+        info.intent = new Intent(Intent.ACTION_MAIN).setComponent(
+                new ComponentName("com.example.unknown", "Activity"));
+        mModel.addItem(RuntimeEnvironment.application, info, false);
+
+        HashSet<ItemInfo> expected = matcher.filterItemInfos(mModel.itemsIdMap);
+        assertEquals(ITEM_COUNT / PACKAGE_COUNT + 1, expected.size());
+        assertEquals(expected, mModel.filterItemInfos(matcher));
+    }
+
+    @Test
+    public void packageMatcherIsFasterThanFullScan() {
+        HashSet<String> packages = new HashSet<>();
+        packages.add(getPackage(5));
+        ItemInfoMatcher matcher = ItemInfoMatcher.ofPackages(packages, mUser);
+
+        long fullScanTime = 0;
+        long indexedTime = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS + BENCHMARK_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            matcher.filterItemInfos(mModel.itemsIdMap);
+            long middle = System.nanoTime();
+            mModel.filterItemInfos(matcher);
+            long end = System.nanoTime();
+            if (i >= WARMUP_ITERATIONS) {
+                fullScanTime += middle - start;
+                indexedTime += end - middle;
+            }
+        }
+
+        Log.d(TAG, "Matching one package in " + ITEM_COUNT + " items: full scan="
+                + fullScanTime / BENCHMARK_ITERATIONS + "ns, indexed="
+                + indexedTime / BENCHMARK_ITERATIONS + "ns");
+        // Only one item in PACKAGE_COUNT is visited with the index, so being faster than the full
+        // scan at all is a generous bound, to catch gross regressions.
+        assertTrue(indexedTime < fullScanTime);
+    }
+}
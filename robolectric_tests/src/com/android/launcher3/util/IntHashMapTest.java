@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Robolectric unit tests for {@link IntHashMap}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class IntHashMapTest {
+
+    private static final String TAG = "IntHashMapTest";
+
+    private static final int BENCHMARK_SIZE = 500;
+    private static final int WARMUP_ITERATIONS = 1000;
+    private static final int BENCHMARK_ITERATIONS = 1000;
+    // Generous bound on the lookup time relative to IntSparseArrayMap, to catch gross regressions
+    private static final long MAX_LOOKUP_TIME_RATIO = 2;
+
+    @Test
+    public void shouldBeEmptyInitially() {
+        IntHashMap<String> map = new IntHashMap<>();
+        assertEquals(0, map.size());
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+    }
+
+    @Test
+    public void putAndReplace() {
+        IntHashMap<String> map = new IntHashMap<>();
+        map.put(2, "a");
+        map.put(2, "b");
+        assertEquals(1, map.size());
+        assertEquals("b", map.get(2));
+        assertTrue(map.containsKey(2));
+        assertFalse(map.containsKey(3));
+    }
+
+    @Test
+    public void removeKeepsOtherEntries() {
+        IntHashMap<Integer> map = new IntHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put(i * 16, i);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            map.remove(i * 16);
+        }
+        assertEquals(50, map.size());
+        for (int i = 0; i < 100; i++) {
+            if (i % 2 == 0) {
+                assertFalse(map.containsKey(i * 16));
+            } else {
+                assertEquals(Integer.valueOf(i), map.get(i * 16));
+            }
+        }
+    }
+
+    @Test
+    public void indexAccessCoversAllEntries() {
+        IntHashMap<Integer> map = new IntHashMap<>();
+        for (int i = 0; i < 40; i++) {
+            map.put(i, i);
+        }
+        map.remove(5);
+        map.remove(39);
+
+        HashSet<Integer> keys = new HashSet<>();
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals(Integer.valueOf(map.keyAt(i)), map.valueAt(i));
+            keys.add(map.keyAt(i));
+        }
+        assertEquals(38, keys.size());
+        assertFalse(keys.contains(5));
+        assertFalse(keys.contains(39));
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(42);
+        IntHashMap<Integer> map = new IntHashMap<>();
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(500) - 250;
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = -250; key < 250; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(expected.keySet().iterator().next()));
+    }
+
+    @Test
+    public void lookupsMatchSparseArray() {
+        IntSparseArrayMap<Integer> sparseArray = new IntSparseArrayMap<>();
+        IntHashMap<Integer> hashMap = new IntHashMap<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 500; i++) {
+            int key = random.nextInt(100000);
+            sparseArray.put(key, i);
+            hashMap.put(key, i);
+        }
+
+        assertEquals(sparseArray.size(), hashMap.size());
+        for (int i = 0; i < sparseArray.size(); i++) {
+            assertEquals(sparseArray.valueAt(i), hashMap.get(sparseArray.keyAt(i)));
+        }
+        for (int i = 0; i < 1000; i++) {
+            int key = random.nextInt(100000);
+            assertEquals(sparseArray.get(key), hashMap.get(key));
+        }
+    }
+
+    @Test
+    public void lookupsAreNotSlowerThanSparseArray() {
+        IntSparseArrayMap<Integer> sparseArray = new IntSparseArrayMap<>();
+        IntHashMap<Integer> hashMap = new IntHashMap<>();
+        int[] keys = new int[BENCHMARK_SIZE];
+        Random random = new Random(0);
+        for (int i = 0; i < BENCHMARK_SIZE; i++) {
+            keys[i] = random.nextInt(100000);
+            sparseArray.put(keys[i], i);
+            hashMap.put(keys[i], i);
+        }
+
+        long sparseArrayTime = 0;
+        long hashMapTime = 0;
+        int found = 0;
+        for (int n = 0; n < WARMUP_ITERATIONS + BENCHMARK_ITERATIONS; n++) {
+            long start = System.nanoTime();
+            for (int key : keys) {
+                if (sparseArray.get(key) != null) found++;
+            }
+            long middle = System.nanoTime();
+            for (int key : keys) {
+                if (hashMap.get(key) != null) found--;
+            }
+            long end = System.nanoTime();
+            if (n >= WARMUP_ITERATIONS) {
+                sparseArrayTime += middle - start;
+                hashMapTime += end - middle;
+            }
+        }
+        assertEquals(0, found);
+
+        Log.d(TAG, "Lookup of " + BENCHMARK_SIZE + " keys: IntSparseArrayMap="
+                + sparseArrayTime / BENCHMARK_ITERATIONS + "ns, IntHashMap="
+                + hashMapTime / BENCHMARK_ITERATIONS + "ns");
+        assertTrue(hashMapTime < sparseArrayTime * MAX_LOOKUP_TIME_RATIO);
+    }
+}
@@ -22,6 +22,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ActivityInfo;
+import android.content.pm.LauncherActivityInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.database.sqlite.SQLiteDatabase;
@@ -40,8 +41,10 @@ import android.util.Xml;
 
 import com.android.launcher3.LauncherProvider.SqlArguments;
 import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.compat.LauncherAppsCompat;
 import com.android.launcher3.icons.GraphicsUtils;
 import com.android.launcher3.icons.LauncherIcons;
+import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.Thunk;
 
@@ -49,6 +52,7 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Locale;
 import java.util.function.Supplier;
 
@@ -165,6 +169,9 @@ public class AutoInstallsLayout {
 
     protected SQLiteDatabase mDb;
 
+    // Launcher activities of the current user, queried once for all the app icons in the layout.
+    private HashMap<ComponentName, LauncherActivityInfo> mLauncherActivities;
+
     public AutoInstallsLayout(Context context, AppWidgetHost appWidgetHost,
             LayoutParserCallback callback, Resources res,
             int layoutId, String rootTag) {
@@ -195,12 +202,36 @@ public class AutoInstallsLayout {
      */
     public int loadLayout(SQLiteDatabase db, IntArray screenIds) {
         mDb = db;
-        try {
-            return parseLayout(mInitialLayoutSupplier.get(), screenIds);
-        } catch (Exception e) {
-            Log.e(TAG, "Error parsing layout: ", e);
-            return -1;
+        // Add all the items in a single transaction. Items added before an error are kept, as
+        // when they were committed one by one.
+        try (SQLiteTransaction t = new SQLiteTransaction(db)) {
+            int count;
+            try {
+                count = parseLayout(mInitialLayoutSupplier.get(), screenIds);
+            } catch (Exception e) {
+                Log.e(TAG, "Error parsing layout: ", e);
+                count = -1;
+            }
+            t.commit();
+            return count;
+        } finally {
+            mLauncherActivities = null;
+        }
+    }
+
+    /**
+     * Returns the launcher activity for {@param cn} in the current user, or null if it is not
+     * a launcher activity.
+     */
+    protected LauncherActivityInfo getLauncherActivity(ComponentName cn) {
+        if (mLauncherActivities == null) {
+            mLauncherActivities = new HashMap<>();
+            for (LauncherActivityInfo info : LauncherAppsCompat.getInstance(mContext)
+                    .getActivityList(null, Process.myUserHandle())) {
+                mLauncherActivities.put(info.getComponentName(), info);
+            }
         }
+        return mLauncherActivities.get(cn);
     }
 
     /**
@@ -339,30 +370,36 @@ public class AutoInstallsLayout {
             final String className = getAttributeValue(parser, ATTR_CLASS_NAME);
 
             if (!TextUtils.isEmpty(packageName) && !TextUtils.isEmpty(className)) {
-                ActivityInfo info;
-                try {
-                    ComponentName cn;
+                ComponentName cn = new ComponentName(packageName, className);
+                String label;
+                LauncherActivityInfo launcherActivity = getLauncherActivity(cn);
+                if (launcherActivity != null) {
+                    label = launcherActivity.getLabel().toString();
+                } else {
+                    // Not a launcher activity, or the package was renamed
                     try {
-                        cn = new ComponentName(packageName, className);
-                        info = mPackageManager.getActivityInfo(cn, 0);
-                    } catch (PackageManager.NameNotFoundException nnfe) {
-                        String[] packages = mPackageManager.currentToCanonicalPackageNames(
-                                new String[] { packageName });
-                        cn = new ComponentName(packages[0], className);
-                        info = mPackageManager.getActivityInfo(cn, 0);
+                        ActivityInfo info;
+                        try {
+                            info = mPackageManager.getActivityInfo(cn, 0);
+                        } catch (PackageManager.NameNotFoundException nnfe) {
+                            String[] packages = mPackageManager.currentToCanonicalPackageNames(
+                                    new String[] { packageName });
+                            cn = new ComponentName(packages[0], className);
+                            info = mPackageManager.getActivityInfo(cn, 0);
+                        }
+                        label = info.loadLabel(mPackageManager).toString();
+                    } catch (PackageManager.NameNotFoundException e) {
+                        Log.e(TAG, "Favorite not found: " + packageName + "/" + className);
+                        return -1;
                     }
-                    final Intent intent = new Intent(Intent.ACTION_MAIN, null)
-                        .addCategory(Intent.CATEGORY_LAUNCHER)
-                        .setComponent(cn)
-                        .setFlags(Intent.FLAG_ACTIVITY_NEW_TASK |
-                                Intent.FLAG_ACTIVITY_RESET_TASK_IF_NEEDED);
-
-                    return addShortcut(info.loadLabel(mPackageManager).toString(),
-                            intent, Favorites.ITEM_TYPE_APPLICATION);
-                } catch (PackageManager.NameNotFoundException e) {
-                    Log.e(TAG, "Favorite not found: " + packageName + "/" + className);
                 }
-                return -1;
+                final Intent intent = new Intent(Intent.ACTION_MAIN, null)
+                    .addCategory(Intent.CATEGORY_LAUNCHER)
+                    .setComponent(cn)
+                    .setFlags(Intent.FLAG_ACTIVITY_NEW_TASK |
+                            Intent.FLAG_ACTIVITY_RESET_TASK_IF_NEEDED);
+
+                return addShortcut(label, intent, Favorites.ITEM_TYPE_APPLICATION);
             } else {
                 return invalidPackageOrClass(parser);
             }
@@ -258,6 +258,10 @@ public class FastBitmapDrawable extends Drawable {
         return mIsDisabled;
     }
 
+    public Bitmap getBitmap() {
+        return mBitmap;
+    }
+
     /**
      * Sets the saturation of this icon, 0 [full color] -> 1 [desaturated]
      */
@@ -26,6 +26,7 @@ import android.content.BroadcastReceiver;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.ActivityInfo;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
@@ -36,6 +37,7 @@ import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.Pair;
 import android.util.SparseArray;
 import android.util.TypedValue;
 import android.util.Xml;
@@ -54,6 +56,8 @@ import org.xmlpull.v1.XmlPullParserException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
@@ -82,6 +86,21 @@ public class InvariantDeviceProfile {
     // used to offset float not being able to express extremely small weights in extreme cases.
     private static final float WEIGHT_EFFICIENT = 100000f;
 
+    // Configuration changes which do not affect the values parsed from device_profiles.xml
+    private static final int CONFIG_CHANGES_IGNORED_BY_OPTIONS = ActivityInfo.CONFIG_ORIENTATION
+            | ActivityInfo.CONFIG_SCREEN_SIZE | ActivityInfo.CONFIG_SMALLEST_SCREEN_SIZE
+            | ActivityInfo.CONFIG_SCREEN_LAYOUT | ActivityInfo.CONFIG_KEYBOARD_HIDDEN
+            | ActivityInfo.CONFIG_NAVIGATION | ActivityInfo.CONFIG_UI_MODE;
+
+    // Options parsed from device_profiles.xml, shared by all the callers in the process and reused
+    // across display changes. Guarded by the class lock.
+    private static Configuration sParsedConfig;
+    private static List<GridOption> sGridOptions;
+    private static List<DisplayOption> sDisplayOptions;
+    // Closest grid and interpolated display option for a grid name and display size
+    private static final HashMap<String, Pair<GridOption, DisplayOption>> sInterpolatedOptions =
+            new HashMap<>();
+
     private static final int CONFIG_ICON_MASK_RES_ID = Resources.getSystem().getIdentifier(
             "config_icon_mask", "string", "android");
 
@@ -181,18 +200,14 @@ public class InvariantDeviceProfile {
         Point largestSize = new Point();
         display.getCurrentSizeRange(smallestSize, largestSize);
 
-        ArrayList<DisplayOption> allOptions = getPredefinedDeviceProfiles(context, gridName);
         // This guarantees that width < height
         float minWidthDps = Utilities.dpiFromPx(Math.min(smallestSize.x, smallestSize.y), dm);
         float minHeightDps = Utilities.dpiFromPx(Math.min(largestSize.x, largestSize.y), dm);
-        // Sort the profiles based on the closeness to the device size
-        Collections.sort(allOptions, (a, b) ->
-                Float.compare(dist(minWidthDps, minHeightDps, a.minWidthDps, a.minHeightDps),
-                        dist(minWidthDps, minHeightDps, b.minWidthDps, b.minHeightDps)));
-        DisplayOption interpolatedDisplayOption =
-                invDistWeightedInterpolate(minWidthDps,  minHeightDps, allOptions);
-
-        GridOption closestProfile = allOptions.get(0).grid;
+        Pair<GridOption, DisplayOption> options =
+                getClosestOptions(context, gridName, minWidthDps, minHeightDps);
+        DisplayOption interpolatedDisplayOption = options.second;
+
+        GridOption closestProfile = options.first;
         numRows = closestProfile.numRows;
         numColumns = closestProfile.numColumns;
         numHotseatIcons = closestProfile.numHotseatIcons;
@@ -322,7 +337,46 @@ public class InvariantDeviceProfile {
         }
     }
 
-    static ArrayList<DisplayOption> getPredefinedDeviceProfiles(Context context, String gridName) {
+    /**
+     * Returns the grid closest to the display size and the display option interpolated for it.
+     */
+    private static synchronized Pair<GridOption, DisplayOption> getClosestOptions(
+            Context context, String gridName, float minWidthDps, float minHeightDps) {
+        ensureOptionsParsed(context);
+        String key = gridName + ":" + minWidthDps + "x" + minHeightDps;
+        Pair<GridOption, DisplayOption> result = sInterpolatedOptions.get(key);
+        if (result == null) {
+            ArrayList<DisplayOption> allOptions = getPredefinedDeviceProfiles(context, gridName);
+            // Sort the profiles based on the closeness to the device size
+            Collections.sort(allOptions, (a, b) ->
+                    Float.compare(dist(minWidthDps, minHeightDps, a.minWidthDps, a.minHeightDps),
+                            dist(minWidthDps, minHeightDps, b.minWidthDps, b.minHeightDps)));
+            result = Pair.create(allOptions.get(0).grid,
+                    invDistWeightedInterpolate(minWidthDps, minHeightDps, allOptions));
+            sInterpolatedOptions.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns all the grid options defined in device_profiles.xml.
+     */
+    public static synchronized List<GridOption> getAllGridOptions(Context context) {
+        ensureOptionsParsed(context);
+        return sGridOptions;
+    }
+
+    /**
+     * Parses device_profiles.xml, unless it was already parsed with an equivalent configuration.
+     */
+    private static synchronized void ensureOptionsParsed(Context context) {
+        Configuration config = context.getResources().getConfiguration();
+        if (sParsedConfig != null
+                && (sParsedConfig.diff(config) & ~CONFIG_CHANGES_IGNORED_BY_OPTIONS) == 0) {
+            return;
+        }
+
+        ArrayList<GridOption> grids = new ArrayList<>();
         ArrayList<DisplayOption> profiles = new ArrayList<>();
         try (XmlResourceParser parser = context.getResources().getXml(R.xml.device_profiles)) {
             final int depth = parser.getDepth();
@@ -333,6 +387,7 @@ public class InvariantDeviceProfile {
                         && GridOption.TAG_NAME.equals(parser.getName())) {
 
                     GridOption gridOption = new GridOption(context, Xml.asAttributeSet(parser));
+                    grids.add(gridOption);
                     final int displayDepth = parser.getDepth();
                     while (((type = parser.next()) != XmlPullParser.END_TAG ||
                             parser.getDepth() > displayDepth)
@@ -349,6 +404,17 @@ public class InvariantDeviceProfile {
             throw new RuntimeException(e);
         }
 
+        sGridOptions = Collections.unmodifiableList(grids);
+        sDisplayOptions = Collections.unmodifiableList(profiles);
+        sInterpolatedOptions.clear();
+        sParsedConfig = new Configuration(config);
+    }
+
+    static synchronized ArrayList<DisplayOption> getPredefinedDeviceProfiles(Context context,
+            String gridName) {
+        ensureOptionsParsed(context);
+        List<DisplayOption> profiles = sDisplayOptions;
+
         ArrayList<DisplayOption> filteredProfiles = new ArrayList<>();
         if (!TextUtils.isEmpty(gridName)) {
             for (DisplayOption option : profiles) {
@@ -94,6 +94,7 @@ import com.android.launcher3.dragndrop.DragView;
 import com.android.launcher3.folder.Folder;
 import com.android.launcher3.folder.FolderIcon;
 import com.android.launcher3.folder.FolderIconPreviewVerifier;
+import com.android.launcher3.graphics.DragPreviewProvider;
 import com.android.launcher3.graphics.RotationMode;
 import com.android.launcher3.icons.IconCache;
 import com.android.launcher3.keyboard.CustomActionsPopup;
@@ -247,6 +248,8 @@ public class Launcher extends BaseDraggingActivity implements LauncherExterns,
     private ArrayList<OnResumeCallback> mOnResumeCallbacks = new ArrayList<>();
 
     private ViewOnDrawExecutor mPendingExecutor;
+    // Fade in of the drag layer after the first page is bound, null if not running.
+    private ObjectAnimator mFirstPageBindAnim;
 
     private LauncherModel mModel;
     private ModelWriter mModelWriter;
@@ -2279,17 +2282,27 @@ public class Launcher extends BaseDraggingActivity implements LauncherExterns,
     @Override
     public void finishFirstPageBind(final ViewOnDrawExecutor executor) {
         AlphaProperty property = mDragLayer.getAlphaProperty(ALPHA_INDEX_LAUNCHER_LOAD);
-        if (property.getValue() < 1) {
-            ObjectAnimator anim = ObjectAnimator.ofFloat(property, MultiValueAlpha.VALUE, 1);
+        if (mFirstPageBindAnim != null || property.getValue() < 1) {
+            // The workspace snapshot may have already started the fade in, in which case the
+            // executor waits for that animation instead of starting a second one.
+            if (mFirstPageBindAnim == null) {
+                mFirstPageBindAnim = ObjectAnimator.ofFloat(property, MultiValueAlpha.VALUE, 1);
+                mFirstPageBindAnim.addListener(new AnimatorListenerAdapter() {
+                    @Override
+                    public void onAnimationEnd(Animator animation) {
+                        mFirstPageBindAnim = null;
+                    }
+                });
+                mFirstPageBindAnim.start();
+            }
             if (executor != null) {
-                anim.addListener(new AnimatorListenerAdapter() {
+                mFirstPageBindAnim.addListener(new AnimatorListenerAdapter() {
                     @Override
                     public void onAnimationEnd(Animator animation) {
                         executor.onLoadAnimationCompleted();
                     }
                 });
             }
-            anim.start();
         } else if (executor != null) {
             executor.onLoadAnimationCompleted();
         }
@@ -2467,6 +2480,14 @@ public class Launcher extends BaseDraggingActivity implements LauncherExterns,
         // Extra logging for b/116853349
         mDragLayer.dump(prefix, writer);
         mStateManager.dump(prefix, writer);
+        Folder.dumpStats(prefix, writer);
+        DragPreviewProvider.dumpStats(prefix, writer);
+        mDragController.dump(prefix, writer);
+        mWorkspace.mWallpaperOffset.dump(prefix, writer);
+        writer.println(prefix + "Bitmap memory: iconCache=" + mIconCache.getMemCacheBitmapBytes()
+                + " widgetPreviewPool="
+                + LauncherAppState.getInstance(this).getWidgetCache().getUnusedBitmapBytes()
+                + " dragView=" + mDragController.getDragViewBitmapBytes());
         dumpMisc(writer);
 
         try {
@@ -48,6 +48,7 @@ import com.android.launcher3.model.PackageInstallStateChangedTask;
 import com.android.launcher3.model.PackageUpdatedTask;
 import com.android.launcher3.model.ShortcutsChangedTask;
 import com.android.launcher3.model.UserLockStateChangedTask;
+import com.android.launcher3.model.WorkspaceSnapshot;
 import com.android.launcher3.shortcuts.DeepShortcutManager;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.IntArray;
@@ -82,6 +83,8 @@ public class LauncherModel extends BroadcastReceiver
 
     static final String TAG = "Launcher.Model";
 
+    private static final long WORKSPACE_SNAPSHOT_SAVE_DELAY = 1000;
+
     private final MainThreadExecutor mUiExecutor = new MainThreadExecutor();
     @Thunk final LauncherAppState mApp;
     @Thunk final Object mLock = new Object();
@@ -119,6 +122,13 @@ public class LauncherModel extends BroadcastReceiver
      */
     static final BgDataModel sBgDataModel = new BgDataModel();
 
+    // Runnable to save the first screen once the model stops changing.
+    private final Runnable mSaveWorkspaceSnapshotRunnable = () -> {
+        if (isModelLoaded()) {
+            WorkspaceSnapshot.save(mApp.getContext(), sBgDataModel);
+        }
+    };
+
     // Runnable to check if the shortcuts permission has changed.
     private final Runnable mShortcutPermissionCheckRunnable = new Runnable() {
         @Override
@@ -258,6 +268,11 @@ public class LauncherModel extends BroadcastReceiver
     @Override
     public void onShortcutsChanged(String packageName, List<ShortcutInfo> shortcuts,
             UserHandle user) {
+        // The callback only has the key fields of the shortcuts, so the shortcuts container
+        // queries the full details again the next time they are needed. This is done before the
+        // task is queued so that a popup opened in the meantime does not use the stale cache.
+        DeepShortcutManager.getInstance(mApp.getContext())
+                .invalidateShortcutCache(packageName, user);
         enqueueModelUpdateTask(new ShortcutsChangedTask(packageName, shortcuts, user, true));
     }
 
@@ -473,6 +488,15 @@ public class LauncherModel extends BroadcastReceiver
         sWorker.post(mShortcutPermissionCheckRunnable);
     }
 
+    /**
+     * Saves the {@link WorkspaceSnapshot} after a short delay, so that a series of changes to the
+     * model is only saved once. The snapshot is only rewritten if the first screen has changed.
+     */
+    public void scheduleWorkspaceSnapshotSave() {
+        sWorker.removeCallbacks(mSaveWorkspaceSnapshotRunnable);
+        sWorker.postDelayed(mSaveWorkspaceSnapshotRunnable, WORKSPACE_SNAPSHOT_SAVE_DELAY);
+    }
+
     /**
      * Called when the icons for packages have been updated in the icon cache.
      */
@@ -49,6 +49,7 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
 import android.os.Process;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.provider.BaseColumns;
@@ -67,6 +68,7 @@ import com.android.launcher3.provider.LauncherDbUtils;
 import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
 import com.android.launcher3.provider.RestoreDbTask;
 import com.android.launcher3.util.IOUtils;
+import com.android.launcher3.util.InsertStatementCache;
 import com.android.launcher3.util.IntArray;
 import com.android.launcher3.util.IntSet;
 import com.android.launcher3.util.NoLocaleSQLiteHelper;
@@ -112,6 +114,7 @@ public class LauncherProvider extends ContentProvider {
      */
     @Override
     public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        RestoreDbTask.dump("", writer);
         LauncherAppState appState = LauncherAppState.getInstanceNoCreate();
         if (appState == null || !appState.getModel().isModelLoaded()) {
             return;
@@ -197,6 +200,27 @@ public class LauncherProvider extends ContentProvider {
         return (int) db.insert(table, nullColumnHack, values);
     }
 
+    /**
+     * Same as {@link #dbInsertAndCheck(DatabaseHelper, SQLiteDatabase, String, String,
+     * ContentValues)} but uses a compiled statement from {@param statements}.
+     */
+    private static int dbInsertAndCheck(DatabaseHelper helper, SQLiteDatabase db,
+            InsertStatementCache statements, ContentValues values) {
+        if (values == null) {
+            throw new RuntimeException("Error: attempting to insert null values");
+        }
+        if (!values.containsKey(LauncherSettings.Favorites._ID)) {
+            throw new RuntimeException("Error: attempting to add item without specifying an id");
+        }
+        helper.checkId(values);
+        try {
+            return (int) statements.insert(db, values);
+        } catch (SQLException e) {
+            Log.e(TAG, "Error inserting " + values, e);
+            return -1;
+        }
+    }
+
     private void reloadLauncherIfExternal() {
         if (Binder.getCallingPid() != Process.myPid()) {
             LauncherAppState app = LauncherAppState.getInstanceNoCreate();
@@ -273,16 +297,19 @@ public class LauncherProvider extends ContentProvider {
         SqlArguments args = new SqlArguments(uri);
 
         SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        InsertStatementCache statements = new InsertStatementCache(args.table, false);
         try (SQLiteTransaction t = new SQLiteTransaction(db)) {
             int numValues = values.length;
             for (int i = 0; i < numValues; i++) {
                 addModifiedTime(values[i]);
-                if (dbInsertAndCheck(mOpenHelper, db, args.table, null, values[i]) < 0) {
+                if (dbInsertAndCheck(mOpenHelper, db, statements, values[i]) < 0) {
                     return 0;
                 }
             }
             mOpenHelper.onAddOrDeleteOp(db);
             t.commit();
+        } finally {
+            statements.close();
         }
 
         notifyListeners();
@@ -988,7 +1015,10 @@ public class LauncherProvider extends ContentProvider {
 
         @Thunk int loadFavorites(SQLiteDatabase db, AutoInstallsLayout loader) {
             // TODO: Use multiple loaders with fall-back and transaction.
+            long startTime = SystemClock.uptimeMillis();
             int count = loader.loadLayout(db, new IntArray());
+            Log.d(TAG, "Loaded layout with " + count + " items in "
+                    + (SystemClock.uptimeMillis() - startTime) + "ms");
 
             // Ensure that the max ids are initialized
             mMaxItemId = initializeMaxItemId(db);
@@ -106,6 +106,19 @@ public class WidgetPreviewLoader {
         return signal;
     }
 
+    /**
+     * Returns the number of bytes used by the preview bitmaps kept for reuse.
+     */
+    public long getUnusedBitmapBytes() {
+        long bytes = 0;
+        synchronized (mUnusedBitmaps) {
+            for (Bitmap bitmap : mUnusedBitmaps) {
+                bytes += bitmap.getAllocationByteCount();
+            }
+        }
+        return bytes;
+    }
+
     public void refresh() {
         mDb.clear();
 
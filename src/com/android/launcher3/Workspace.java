@@ -103,6 +103,7 @@ import com.android.launcher3.widget.PendingAppWidgetHostView;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.function.Predicate;
 
 /**
@@ -3096,7 +3097,8 @@ public class Workspace extends PagedView<WorkspacePageIndicator>
             ItemInfo info = (ItemInfo) item.getTag();
             if (recurse && info instanceof FolderInfo && item instanceof FolderIcon) {
                 FolderIcon folder = (FolderIcon) item;
-                ArrayList<View> folderChildren = folder.getFolder().getItemsInReadingOrder();
+                // Folder items without a view are created from their info once the folder opens
+                List<? extends View> folderChildren = folder.getFolder().getCreatedItemViews();
                 // map over all the children in the folder
                 final int childCount = folderChildren.size();
                 for (int childIdx = 0; childIdx < childCount; childIdx++) {
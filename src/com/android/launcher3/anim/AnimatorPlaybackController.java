@@ -16,22 +16,29 @@
 package com.android.launcher3.anim;
 
 import static com.android.launcher3.anim.Interpolators.LINEAR;
+import static com.android.launcher3.config.FeatureFlags.COMPILED_PLAYBACK_CONTROLLER;
 import static com.android.launcher3.config.FeatureFlags.QUICKSTEP_SPRINGS;
 
 import android.animation.Animator;
 import android.animation.Animator.AnimatorListener;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.AnimatorSet;
+import android.animation.ObjectAnimator;
+import android.animation.PropertyValuesHolder;
 import android.animation.TimeInterpolator;
 import android.animation.ValueAnimator;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.dynamicanimation.animation.DynamicAnimation;
 import androidx.dynamicanimation.animation.SpringAnimation;
 
@@ -59,11 +66,20 @@ public abstract class AnimatorPlaybackController implements ValueAnimator.Animat
      */
     public static AnimatorPlaybackController wrap(AnimatorSet anim, long duration,
             Runnable onCancelRunnable) {
+        return wrap(anim, duration, onCancelRunnable, COMPILED_PLAYBACK_CONTROLLER.get());
+    }
+
+    /**
+     * @param compiled if true, child animations are only updated when their play time changes
+     */
+    @VisibleForTesting
+    static AnimatorPlaybackController wrap(AnimatorSet anim, long duration,
+            Runnable onCancelRunnable, boolean compiled) {
 
         /**
          * TODO: use {@link AnimatorSet#setCurrentPlayTime(long)} once b/68382377 is fixed.
          */
-        return new AnimatorPlaybackControllerVL(anim, duration, onCancelRunnable);
+        return new AnimatorPlaybackControllerVL(anim, duration, onCancelRunnable, compiled);
     }
 
     private final ValueAnimator mAnimationPlayer;
@@ -231,6 +247,7 @@ public abstract class AnimatorPlaybackController implements ValueAnimator.Animat
     }
 
     public void dispatchOnStart() {
+        onChildAnimationsChanged();
         dispatchOnStartRecursively(mAnim);
     }
 
@@ -251,6 +268,7 @@ public abstract class AnimatorPlaybackController implements ValueAnimator.Animat
     }
 
     public void dispatchOnCancel() {
+        onChildAnimationsChanged();
         dispatchOnCancelRecursively(mAnim);
     }
 
@@ -267,9 +285,16 @@ public abstract class AnimatorPlaybackController implements ValueAnimator.Animat
     }
 
     public void dispatchSetInterpolator(TimeInterpolator interpolator) {
+        onChildAnimationsChanged();
         dispatchSetInterpolatorRecursively(mAnim, interpolator);
     }
 
+    /**
+     * Called when the child animations may have been changed outside of
+     * {@link #setPlayFraction(float)}, and their values need to be applied again.
+     */
+    protected void onChildAnimationsChanged() { }
+
     private void dispatchSetInterpolatorRecursively(Animator anim, TimeInterpolator interpolator) {
         anim.setInterpolator(interpolator);
         if (anim instanceof AnimatorSet) {
@@ -302,14 +327,89 @@ public abstract class AnimatorPlaybackController implements ValueAnimator.Animat
 
         private final ValueAnimator[] mChildAnimations;
 
+        // In compiled mode, the durations of the child animations and the play time last applied
+        // to each of them, or -1 if it needs to be applied again. The durations are fixed when
+        // the controller is created, and a child is skipped when its play time has not changed,
+        // eg. once it has reached its end.
+        private final boolean mCompiled;
+        private final long[] mChildDurations;
+        private final long[] mAppliedPlayTimes;
+        // Children which are never skipped, as another child can overwrite their values
+        private final boolean[] mAlwaysApply;
+
         private AnimatorPlaybackControllerVL(AnimatorSet anim, long duration,
-                Runnable onCancelRunnable) {
+                Runnable onCancelRunnable, boolean compiled) {
             super(anim, duration, onCancelRunnable);
 
             // Build animation list
             ArrayList<ValueAnimator> childAnims = new ArrayList<>();
             getAnimationsRecur(mAnim, childAnims);
             mChildAnimations = childAnims.toArray(new ValueAnimator[childAnims.size()]);
+
+            mCompiled = compiled;
+            if (compiled) {
+                mChildDurations = new long[mChildAnimations.length];
+                for (int i = 0; i < mChildAnimations.length; i++) {
+                    mChildDurations[i] = mChildAnimations[i].getDuration();
+                }
+                mAppliedPlayTimes = new long[mChildAnimations.length];
+                mAlwaysApply = findChildrenWithSharedProperties(mChildAnimations);
+                onChildAnimationsChanged();
+
+                // The animation can also be played outside of this controller
+                mAnim.addListener(new AnimatorListenerAdapter() {
+                    @Override
+                    public void onAnimationStart(Animator animation) {
+                        onChildAnimationsChanged();
+                    }
+
+                    @Override
+                    public void onAnimationEnd(Animator animation) {
+                        onChildAnimationsChanged();
+                    }
+                });
+            } else {
+                mChildDurations = null;
+                mAppliedPlayTimes = null;
+                mAlwaysApply = null;
+            }
+        }
+
+        /**
+         * Returns which of {@param anims} set a property of a target which is also set by another
+         * child. When all children are updated, the last of them sets the final value, so none
+         * of them can be skipped. Children which are not {@link ObjectAnimator}s can set any
+         * value from their listeners, so they are treated the same.
+         */
+        private static boolean[] findChildrenWithSharedProperties(ValueAnimator[] anims) {
+            boolean[] shared = new boolean[anims.length];
+            // Index of the first child setting each property, for each target
+            IdentityHashMap<Object, HashMap<String, Integer>> firstChildren =
+                    new IdentityHashMap<>();
+            for (int i = 0; i < anims.length; i++) {
+                PropertyValuesHolder[] values = anims[i].getValues();
+                if (!(anims[i] instanceof ObjectAnimator) || values == null) {
+                    shared[i] = true;
+                    continue;
+                }
+                HashMap<String, Integer> properties = firstChildren.computeIfAbsent(
+                        ((ObjectAnimator) anims[i]).getTarget(), target -> new HashMap<>());
+                for (PropertyValuesHolder value : values) {
+                    Integer first = properties.putIfAbsent(value.getPropertyName(), i);
+                    if (first != null) {
+                        shared[first] = true;
+                        shared[i] = true;
+                    }
+                }
+            }
+            return shared;
+        }
+
+        @Override
+        protected void onChildAnimationsChanged() {
+            if (mCompiled) {
+                Arrays.fill(mAppliedPlayTimes, -1);
+            }
         }
 
         private void getAnimationsRecur(AnimatorSet anim, ArrayList<ValueAnimator> out) {
@@ -341,6 +441,20 @@ public abstract class AnimatorPlaybackController implements ValueAnimator.Animat
                 return;
             }
             long playPos = clampDuration(fraction);
+            if (mCompiled) {
+                final ValueAnimator[] anims = mChildAnimations;
+                final long[] durations = mChildDurations;
+                final long[] appliedPlayTimes = mAppliedPlayTimes;
+                final boolean[] alwaysApply = mAlwaysApply;
+                for (int i = 0; i < anims.length; i++) {
+                    long playTime = Math.min(playPos, durations[i]);
+                    if (appliedPlayTimes[i] != playTime || alwaysApply[i]) {
+                        appliedPlayTimes[i] = playTime;
+                        anims[i].setCurrentPlayTime(playTime);
+                    }
+                }
+                return;
+            }
             for (ValueAnimator anim : mChildAnimations) {
                 anim.setCurrentPlayTime(Math.min(playPos, anim.getDuration()));
             }
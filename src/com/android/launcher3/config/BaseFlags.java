@@ -112,6 +112,10 @@ abstract class BaseFlags {
             "FAKE_LANDSCAPE_UI", false,
             "Rotate launcher UI instead of using transposed layout");
 
+    public static final TogglableFlag COMPILED_PLAYBACK_CONTROLLER = new TogglableFlag(
+            "COMPILED_PLAYBACK_CONTROLLER", false,
+            "Only update the child animations which changed when scrubbing state transitions");
+
     public static void initialize(Context context) {
         // Avoid the disk read for user builds
         if (Utilities.IS_DEBUG_DEVICE) {
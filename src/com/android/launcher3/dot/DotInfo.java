@@ -20,7 +20,9 @@ import com.android.launcher3.notification.NotificationInfo;
 import com.android.launcher3.notification.NotificationKeyData;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Contains data to be used for a notification dot.
@@ -30,10 +32,11 @@ public class DotInfo {
     public static final int MAX_COUNT = 999;
 
     /**
-     * The keys of the notifications that this dot represents. These keys can later be
-     * used to retrieve {@link NotificationInfo}'s.
+     * The keys of the notifications that this dot represents, indexed by notification key and
+     * in the order they were added. These keys can later be used to retrieve
+     * {@link NotificationInfo}'s.
      */
-    private final List<NotificationKeyData> mNotificationKeys = new ArrayList<>();
+    private final Map<String, NotificationKeyData> mNotificationKeys = new LinkedHashMap<>();
 
     /**
      * The current sum of the counts in {@link #mNotificationKeys},
@@ -45,9 +48,7 @@ public class DotInfo {
      * Returns whether the notification was added or its count changed.
      */
     public boolean addOrUpdateNotificationKey(NotificationKeyData notificationKey) {
-        int indexOfPrevKey = mNotificationKeys.indexOf(notificationKey);
-        NotificationKeyData prevKey = indexOfPrevKey == -1 ? null
-                : mNotificationKeys.get(indexOfPrevKey);
+        NotificationKeyData prevKey = mNotificationKeys.get(notificationKey.notificationKey);
         if (prevKey != null) {
             if (prevKey.count == notificationKey.count) {
                 return false;
@@ -58,26 +59,42 @@ public class DotInfo {
             prevKey.count = notificationKey.count;
             return true;
         }
-        boolean added = mNotificationKeys.add(notificationKey);
-        if (added) {
-            mTotalCount += notificationKey.count;
-        }
-        return added;
+        mNotificationKeys.put(notificationKey.notificationKey, notificationKey);
+        mTotalCount += notificationKey.count;
+        return true;
     }
 
     /**
      * Returns whether the notification was removed (false if it didn't exist).
      */
     public boolean removeNotificationKey(NotificationKeyData notificationKey) {
-        boolean removed = mNotificationKeys.remove(notificationKey);
-        if (removed) {
-            mTotalCount -= notificationKey.count;
+        if (notificationKey == null) {
+            return false;
+        }
+        NotificationKeyData prevKey = mNotificationKeys.remove(notificationKey.notificationKey);
+        if (prevKey == null) {
+            return false;
         }
-        return removed;
+        mTotalCount -= prevKey.count;
+        return true;
     }
 
+    /**
+     * Returns the key data for the given notification key, or null if it is not part of this dot.
+     */
+    public NotificationKeyData getNotificationKey(String notificationKey) {
+        return mNotificationKeys.get(notificationKey);
+    }
+
+    /**
+     * Returns a copy of the keys of the notifications of this dot, in the order they were added.
+     */
     public List<NotificationKeyData> getNotificationKeys() {
-        return mNotificationKeys;
+        return new ArrayList<>(mNotificationKeys.values());
+    }
+
+    public int getNotificationKeyCount() {
+        return mNotificationKeys.size();
     }
 
     public int getNotificationCount() {
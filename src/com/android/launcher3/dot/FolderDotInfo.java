@@ -34,7 +34,7 @@ public class FolderDotInfo extends DotInfo {
         if (dotToAdd == null) {
             return;
         }
-        mNumNotifications += dotToAdd.getNotificationKeys().size();
+        mNumNotifications += dotToAdd.getNotificationKeyCount();
         mNumNotifications = Utilities.boundToRange(
                 mNumNotifications, MIN_COUNT, DotInfo.MAX_COUNT);
     }
@@ -43,7 +43,7 @@ public class FolderDotInfo extends DotInfo {
         if (dotToSubtract == null) {
             return;
         }
-        mNumNotifications -= dotToSubtract.getNotificationKeys().size();
+        mNumNotifications -= dotToSubtract.getNotificationKeyCount();
         mNumNotifications = Utilities.boundToRange(
                 mNumNotifications, MIN_COUNT, DotInfo.MAX_COUNT);
     }
@@ -28,17 +28,20 @@ import android.graphics.Point;
 import android.graphics.Rect;
 import android.os.IBinder;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.DragEvent;
 import android.view.HapticFeedbackConstants;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewTreeObserver.OnGlobalLayoutListener;
 
 import com.android.launcher3.AbstractFloatingView;
 import com.android.launcher3.DragSource;
 import com.android.launcher3.DropTarget;
 import com.android.launcher3.ItemInfo;
 import com.android.launcher3.Launcher;
+import com.android.launcher3.LauncherStateManager;
 import com.android.launcher3.R;
 import com.android.launcher3.WorkspaceItemInfo;
 import com.android.launcher3.accessibility.DragViewStateAnnouncer;
@@ -48,6 +51,7 @@ import com.android.launcher3.util.Thunk;
 import com.android.launcher3.util.TouchController;
 import com.android.launcher3.util.UiThreadHelper;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
 
 /**
@@ -60,7 +64,6 @@ public class DragController implements DragDriver.EventListener, TouchController
     private FlingToDeleteHelper mFlingToDeleteHelper;
 
     // temporaries to avoid gc thrash
-    private Rect mRectTemp = new Rect();
     private final int[] mCoordinatesTemp = new int[2];
 
     /**
@@ -80,8 +83,10 @@ public class DragController implements DragDriver.EventListener, TouchController
 
     private DropTarget.DragObject mDragObject;
 
-    /** Who can receive drop events */
-    private ArrayList<DropTarget> mDropTargets = new ArrayList<>();
+    /** Who can receive drop events, along with their cached hit rects */
+    private ArrayList<DropTargetEntry> mDropTargets = new ArrayList<>();
+    private final OnGlobalLayoutListener mDropTargetLayoutListener =
+            this::invalidateDropTargetRects;
     private ArrayList<DragListener> mListeners = new ArrayList<>();
 
     /** The window token used as the parent for the DragView. */
@@ -100,6 +105,30 @@ public class DragController implements DragDriver.EventListener, TouchController
 
     private boolean mIsInPreDrag;
 
+    // Move events received within a frame are coalesced, and only the last one is handled
+    private boolean mMoveScheduled;
+    private int mPendingMoveX;
+    private int mPendingMoveY;
+    private long mPendingMoveStartNanos;
+    private final Choreographer.FrameCallback mHandlePendingMoveCallback =
+            frameTimeNanos -> handlePendingMove();
+
+    // Stats about the move events of the last drag, for dump
+    private int mMovesReceived;
+    private int mMovesHandled;
+    private long mTotalMoveLatencyNanos;
+    private long mMaxMoveLatencyNanos;
+
+    private static class DropTargetEntry {
+        final DropTarget target;
+        final Rect hitRect = new Rect();
+        boolean hitRectValid;
+
+        DropTargetEntry(DropTarget target) {
+            this.target = target;
+        }
+    }
+
     /**
      * Interface to receive notifications when a drag starts or stops
      */
@@ -166,6 +195,12 @@ public class DragController implements DragDriver.EventListener, TouchController
 
         mLastDropTarget = null;
 
+        invalidateDropTargetRects();
+        mLauncher.getDragLayer().getViewTreeObserver()
+                .addOnGlobalLayoutListener(mDropTargetLayoutListener);
+        mMovesReceived = mMovesHandled = 0;
+        mTotalMoveLatencyNanos = mMaxMoveLatencyNanos = 0;
+
         mDragObject = new DropTarget.DragObject();
 
         mIsInPreDrag = mOptions.preDragCondition != null
@@ -299,6 +334,9 @@ public class DragController implements DragDriver.EventListener, TouchController
     private void endDrag() {
         if (isDragging()) {
             mDragDriver = null;
+            cancelPendingMove();
+            mLauncher.getDragLayer().getViewTreeObserver()
+                    .removeOnGlobalLayoutListener(mDropTargetLayoutListener);
             boolean isDeferred = false;
             if (mDragObject.dragView != null) {
                 isDeferred = mDragObject.deferDragViewCleanupPostAnimation;
@@ -383,12 +421,46 @@ public class DragController implements DragDriver.EventListener, TouchController
     @Override
     public void onDriverDragMove(float x, float y) {
         final int[] dragLayerPos = getClampedDragLayerPos(x, y);
+        mPendingMoveX = dragLayerPos[0];
+        mPendingMoveY = dragLayerPos[1];
+        mMovesReceived++;
+
+        if (!mMoveScheduled) {
+            mMoveScheduled = true;
+            mPendingMoveStartNanos = System.nanoTime();
+            Choreographer.getInstance().postFrameCallback(mHandlePendingMoveCallback);
+        }
+    }
 
-        handleMoveEvent(dragLayerPos[0], dragLayerPos[1]);
+    /**
+     * Handles the last move event received since the previous frame, if any.
+     */
+    private void handlePendingMove() {
+        if (!mMoveScheduled) {
+            return;
+        }
+        cancelPendingMove();
+        if (mDragObject == null || mDragObject.dragView == null) {
+            return;
+        }
+        handleMoveEvent(mPendingMoveX, mPendingMoveY);
+
+        long latency = System.nanoTime() - mPendingMoveStartNanos;
+        mMovesHandled++;
+        mTotalMoveLatencyNanos += latency;
+        mMaxMoveLatencyNanos = Math.max(mMaxMoveLatencyNanos, latency);
+    }
+
+    private void cancelPendingMove() {
+        if (mMoveScheduled) {
+            mMoveScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(mHandlePendingMoveCallback);
+        }
     }
 
     @Override
     public void onDriverDragExitWindow() {
+        handlePendingMove();
         if (mLastDropTarget != null) {
             mLastDropTarget.onDragExit(mDragObject);
             mLastDropTarget = null;
@@ -397,6 +469,7 @@ public class DragController implements DragDriver.EventListener, TouchController
 
     @Override
     public void onDriverDragEnd(float x, float y) {
+        handlePendingMove();
         DropTarget dropTarget;
         Runnable flingAnimation = mFlingToDeleteHelper.getFlingAnimation(mDragObject, mOptions);
         if (flingAnimation != null) {
@@ -517,6 +590,7 @@ public class DragController implements DragDriver.EventListener, TouchController
     }
 
     public void forceTouchMove() {
+        handlePendingMove();
         int[] dummyCoordinates = mCoordinatesTemp;
         DropTarget dropTarget = findDropTarget(mLastTouch[0], mLastTouch[1], dummyCoordinates);
         mDragObject.x = dummyCoordinates[0];
@@ -646,16 +720,25 @@ public class DragController implements DragDriver.EventListener, TouchController
         mDragObject.x = x;
         mDragObject.y = y;
 
-        final Rect r = mRectTemp;
-        final ArrayList<DropTarget> dropTargets = mDropTargets;
+        // The targets are scaled without a layout pass during state transitions, eg. when the
+        // workspace shrinks to spring loaded, so their rects are only cached once it settles.
+        final boolean cacheHitRects = !isInStateTransition();
+        final ArrayList<DropTargetEntry> dropTargets = mDropTargets;
         final int count = dropTargets.size();
         for (int i = count - 1; i >= 0; i--) {
-            DropTarget target = dropTargets.get(i);
-            if (!target.isDropEnabled())
+            DropTargetEntry entry = dropTargets.get(i);
+            DropTarget target = entry.target;
+            if (!target.isDropEnabled()) {
+                // The target can move while it is disabled, eg. while a folder animates open
+                entry.hitRectValid = false;
                 continue;
+            }
 
-            target.getHitRectRelativeToDragLayer(r);
-            if (r.contains(x, y)) {
+            if (!cacheHitRects || !entry.hitRectValid) {
+                target.getHitRectRelativeToDragLayer(entry.hitRect);
+                entry.hitRectValid = cacheHitRects;
+            }
+            if (entry.hitRect.contains(x, y)) {
                 dropCoordinates[0] = x;
                 dropCoordinates[1] = y;
                 mLauncher.getDragLayer().mapCoordInSelfToDescendant((View) target, dropCoordinates);
@@ -693,13 +776,51 @@ public class DragController implements DragDriver.EventListener, TouchController
      * Add a DropTarget to the list of potential places to receive drop events.
      */
     public void addDropTarget(DropTarget target) {
-        mDropTargets.add(target);
+        mDropTargets.add(new DropTargetEntry(target));
     }
 
     /**
      * Don't send drop events to <em>target</em> any more.
      */
     public void removeDropTarget(DropTarget target) {
-        mDropTargets.remove(target);
+        for (int i = mDropTargets.size() - 1; i >= 0; i--) {
+            if (mDropTargets.get(i).target == target) {
+                mDropTargets.remove(i);
+                return;
+            }
+        }
+    }
+
+    private boolean isInStateTransition() {
+        LauncherStateManager stateManager = mLauncher.getStateManager();
+        return stateManager.getState() != stateManager.getCurrentStableState();
+    }
+
+    /**
+     * Clears the hit rects of the drop targets cached for the current drag. The rects are also
+     * cleared whenever the drag layer is laid out, and are not cached during state transitions,
+     * so this only needs to be called when a target moves otherwise.
+     */
+    public void invalidateDropTargetRects() {
+        for (int i = mDropTargets.size() - 1; i >= 0; i--) {
+            mDropTargets.get(i).hitRectValid = false;
+        }
+    }
+
+    /**
+     * Returns the number of bytes used by the bitmap of the current drag view.
+     */
+    public long getDragViewBitmapBytes() {
+        DragView dragView = mDragObject == null ? null : mDragObject.dragView;
+        return dragView == null ? 0 : dragView.getPreviewBitmap().getAllocationByteCount();
+    }
+
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "DragController: dropTargets=" + mDropTargets.size()
+                + " lastDragMovesReceived=" + mMovesReceived
+                + " lastDragMovesHandled=" + mMovesHandled
+                + " avgMoveLatencyUs=" + (mMovesHandled == 0
+                        ? 0 : mTotalMoveLatencyNanos / mMovesHandled / 1000)
+                + " maxMoveLatencyUs=" + mMaxMoveLatencyNanos / 1000);
     }
 }
@@ -19,6 +19,7 @@ package com.android.launcher3.folder;
 import static com.android.launcher3.LauncherAnimUtils.SPRING_LOADED_EXIT_DELAY;
 import static com.android.launcher3.LauncherState.NORMAL;
 import static com.android.launcher3.compat.AccessibilityManagerCompat.sendCustomAccessibilityEvent;
+import static com.android.launcher3.folder.ClippedFolderIconLayoutRule.MAX_NUM_ITEMS_IN_PREVIEW;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
@@ -30,8 +31,10 @@ import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Path;
 import android.graphics.Rect;
+import android.os.SystemClock;
 import android.text.InputType;
 import android.text.Selection;
+import android.util.ArrayMap;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.util.Pair;
@@ -80,6 +83,9 @@ import com.android.launcher3.util.Thunk;
 import com.android.launcher3.views.ClipPathView;
 import com.android.launcher3.widget.PendingAddShortcutInfo;
 
+import androidx.annotation.Nullable;
+
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -180,6 +186,18 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
     @ViewDebug.ExportedProperty(category = "launcher")
     private boolean mDestroyed;
 
+    // The views for all the items are only created when the folder is first used. Until then,
+    // only the views shown in the folder icon preview are created, and reused afterwards.
+    @ViewDebug.ExportedProperty(category = "launcher")
+    private boolean mContentBound;
+    private final ArrayMap<WorkspaceItemInfo, BubbleTextView> mPreviewViews = new ArrayMap<>();
+
+    // Stats about the folder content binding, for dump
+    private static int sFoldersCreated;
+    private static int sFoldersContentBound;
+    private static int sItemViewsCreated;
+    private static long sContentBindTimeMs;
+
     // Folder scrolling
     private int mScrollAreaOffset;
 
@@ -383,9 +401,8 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
 
     void bind(FolderInfo info) {
         mInfo = info;
-        ArrayList<WorkspaceItemInfo> children = info.contents;
-        Collections.sort(children, ITEM_POS_COMPARATOR);
-        mContent.bindItems(children);
+        Collections.sort(info.contents, ITEM_POS_COMPARATOR);
+        sFoldersCreated++;
 
         DragLayer.LayoutParams lp = (DragLayer.LayoutParams) getLayoutParams();
         if (lp == null) {
@@ -417,6 +434,121 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
         });
     }
 
+    /**
+     * Returns true if the views for all the items in the folder have been created.
+     */
+    public boolean isContentBound() {
+        return mContentBound;
+    }
+
+    /**
+     * Creates the views for all the items in the folder, if it was not done yet.
+     */
+    public void bindContentIfNeeded() {
+        bindContentIfNeeded(null);
+    }
+
+    /**
+     * Same as {@link #bindContentIfNeeded()}, but does not create a view for {@param excludedItem}
+     * which the caller adds itself.
+     */
+    private void bindContentIfNeeded(@Nullable WorkspaceItemInfo excludedItem) {
+        if (mContentBound) {
+            return;
+        }
+        mContentBound = true;
+        long startTime = SystemClock.uptimeMillis();
+
+        ArrayList<WorkspaceItemInfo> children = mInfo.contents;
+        if (excludedItem != null) {
+            children = new ArrayList<>(children);
+            children.remove(excludedItem);
+            mPreviewViews.remove(excludedItem);
+        }
+        Collections.sort(children, ITEM_POS_COMPARATOR);
+        mContent.bindItems(children, mPreviewViews);
+        sItemViewsCreated += children.size() - mPreviewViews.size();
+        mPreviewViews.clear();
+
+        mItemsInvalidated = true;
+        updateTextViewFocus();
+
+        sFoldersContentBound++;
+        sContentBindTimeMs += SystemClock.uptimeMillis() - startTime;
+    }
+
+    /**
+     * Returns the items displayed in the folder icon preview for {@param page}, without creating
+     * the views for the other items if the folder content is not bound yet.
+     */
+    List<BubbleTextView> getPreviewItemsOnPage(int page, FolderIconPreviewVerifier verifier) {
+        List<BubbleTextView> itemsToDisplay = new ArrayList<>();
+        if (!mContentBound) {
+            // Only the first page can be previewed before the folder is opened.
+            List<WorkspaceItemInfo> children = mInfo.contents;
+            int numItems = page == 0 ? Math.min(children.size(), mContent.itemsPerPage()) : 0;
+            for (int rank = 0; rank < numItems; ++rank) {
+                if (verifier.isItemInPreview(page, rank)) {
+                    itemsToDisplay.add(getPreviewView(children.get(rank)));
+                }
+
+                if (itemsToDisplay.size() == MAX_NUM_ITEMS_IN_PREVIEW) {
+                    break;
+                }
+            }
+            return itemsToDisplay;
+        }
+
+        List<BubbleTextView> itemsOnPage = getItemsOnPage(page);
+        int numItems = itemsOnPage.size();
+        for (int rank = 0; rank < numItems; ++rank) {
+            if (verifier.isItemInPreview(page, rank)) {
+                itemsToDisplay.add(itemsOnPage.get(rank));
+            }
+
+            if (itemsToDisplay.size() == MAX_NUM_ITEMS_IN_PREVIEW) {
+                break;
+            }
+        }
+        return itemsToDisplay;
+    }
+
+    private BubbleTextView getPreviewView(WorkspaceItemInfo item) {
+        BubbleTextView view = mPreviewViews.get(item);
+        if (view == null) {
+            view = (BubbleTextView) mContent.createNewView(item);
+            mPreviewViews.put(item, view);
+            sItemViewsCreated++;
+        }
+        return view;
+    }
+
+    /**
+     * Returns the views which were created for the items of the folder, in reading order. Unlike
+     * {@link #getItemsInReadingOrder()}, this does not bind the folder content.
+     */
+    public List<? extends View> getCreatedItemViews() {
+        if (mContentBound) {
+            return getItemsInReadingOrder();
+        }
+        ArrayList<BubbleTextView> views = new ArrayList<>(mPreviewViews.size());
+        for (WorkspaceItemInfo item : mInfo.contents) {
+            BubbleTextView view = mPreviewViews.get(item);
+            if (view != null) {
+                views.add(view);
+            }
+        }
+        return views;
+    }
+
+    public static void dumpStats(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Folders: created=" + sFoldersCreated
+                + " contentBound=" + sFoldersContentBound
+                + " itemViewsCreated=" + sItemViewsCreated
+                + " contentBindTime=" + sContentBindTimeMs + "ms");
+        PreviewItemManager.dumpStats(prefix, writer);
+    }
+
     /**
      * Creates a new UserFolder, inflated from R.layout.user_folder.
      *
@@ -478,6 +610,7 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
      * is played.
      */
     public void animateOpen() {
+        bindContentIfNeeded();
         Folder openFolder = getOpen(mLauncher);
         if (openFolder != null && openFolder != this) {
             // Close any open folder before opening a folder.
@@ -575,6 +708,7 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
     }
 
     public void beginExternalDrag() {
+        bindContentIfNeeded();
         mEmptyCellRank = mContent.allocateRankForNewItem();
         mIsExternalDrag = true;
         mDragInProgress = true;
@@ -1036,7 +1170,7 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
     }
 
     public int getItemCount() {
-        return mContent.getItemCount();
+        return mContentBound ? mContent.getItemCount() : mInfo.contents.size();
     }
 
     @Thunk void replaceFolderWithFinalItem() {
@@ -1235,6 +1369,9 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
 
     @Override
     public void onAdd(WorkspaceItemInfo item, int rank) {
+        // The item is already in mInfo.contents, so leave it out of the bind and only create its
+        // view below.
+        bindContentIfNeeded(item);
         View view = mContent.createAndAddViewForRank(item, rank);
         mLauncher.getModelWriter().addOrMoveItemInDatabase(item, mInfo.id, 0, item.cellX,
                 item.cellY);
@@ -1247,12 +1384,16 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
 
     public void onRemove(WorkspaceItemInfo item) {
         mItemsInvalidated = true;
-        View v = getViewForInfo(item);
-        mContent.removeItem(v);
-        if (mState == STATE_ANIMATING) {
-            mRearrangeOnClose = true;
+        if (!mContentBound) {
+            mPreviewViews.remove(item);
         } else {
-            rearrangeChildren();
+            View v = getViewForInfo(item);
+            mContent.removeItem(v);
+            if (mState == STATE_ANIMATING) {
+                mRearrangeOnClose = true;
+            } else {
+                rearrangeChildren();
+            }
         }
         if (getItemCount() <= 1) {
             if (mIsOpen) {
@@ -1264,6 +1405,7 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
     }
 
     private View getViewForInfo(final WorkspaceItemInfo item) {
+        bindContentIfNeeded();
         return mContent.iterateOverItems(new ItemOperator() {
 
             @Override
@@ -1287,6 +1429,7 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
     }
 
     public ArrayList<View> getItemsInReadingOrder() {
+        bindContentIfNeeded();
         if (mItemsInvalidated) {
             mItemsInReadingOrder.clear();
             mContent.iterateOverItems(new ItemOperator() {
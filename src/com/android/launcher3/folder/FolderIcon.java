@@ -466,6 +466,7 @@ public class FolderIcon extends FrameLayout implements FolderListener {
     public void setFolderBackground(PreviewBackground bg) {
         mBackground = bg;
         mBackground.setInvalidateDelegate(this);
+        mPreviewItemManager.invalidateCachedPreview();
     }
 
     public void setBackgroundVisible(boolean visible) {
@@ -496,10 +497,8 @@ public class FolderIcon extends FrameLayout implements FolderListener {
         if (mFolder == null) return;
         if (mFolder.getItemCount() == 0 && !mAnimating) return;
 
-        final int saveCount = canvas.save();
-        canvas.clipPath(mBackground.getClipPath());
-        mPreviewItemManager.draw(canvas);
-        canvas.restoreToCount(saveCount);
+        // The clip path changes while the background scales to accept a drop
+        mPreviewItemManager.drawClipped(canvas, mAnimating || mBackground.getScaleProgress() != 0);
 
         if (!mBackground.drawingDelegated()) {
             mBackground.drawBackgroundStroke(canvas);
@@ -547,20 +546,7 @@ public class FolderIcon extends FrameLayout implements FolderListener {
      */
     public List<BubbleTextView> getPreviewItemsOnPage(int page) {
         mPreviewVerifier.setFolderInfo(mFolder.getInfo());
-
-        List<BubbleTextView> itemsToDisplay = new ArrayList<>();
-        List<BubbleTextView> itemsOnPage = mFolder.getItemsOnPage(page);
-        int numItems = itemsOnPage.size();
-        for (int rank = 0; rank < numItems; ++rank) {
-            if (mPreviewVerifier.isItemInPreview(page, rank)) {
-                itemsToDisplay.add(itemsOnPage.get(rank));
-            }
-
-            if (itemsToDisplay.size() == MAX_NUM_ITEMS_IN_PREVIEW) {
-                break;
-            }
-        }
-        return itemsToDisplay;
+        return mFolder.getPreviewItemsOnPage(page, mPreviewVerifier);
     }
 
     @Override
@@ -568,6 +554,14 @@ public class FolderIcon extends FrameLayout implements FolderListener {
         return mPreviewItemManager.verifyDrawable(who) || super.verifyDrawable(who);
     }
 
+    @Override
+    public void invalidateDrawable(@NonNull Drawable drawable) {
+        if (mPreviewItemManager.verifyDrawable(drawable)) {
+            mPreviewItemManager.invalidateCachedPreview();
+        }
+        super.invalidateDrawable(drawable);
+    }
+
     @Override
     public void onItemsChanged(boolean animate) {
         updatePreviewItems(animate);
@@ -176,12 +176,14 @@ public class FolderPagedView extends PagedView<PageIndicatorDots> {
     }
 
     /**
-     * Binds items to the layout.
+     * Binds items to the layout, reusing the views in {@param existingViews} if present.
      */
-    public void bindItems(ArrayList<WorkspaceItemInfo> items) {
+    public void bindItems(ArrayList<WorkspaceItemInfo> items,
+            Map<WorkspaceItemInfo, ? extends View> existingViews) {
         ArrayList<View> icons = new ArrayList<>();
         for (WorkspaceItemInfo item : items) {
-            icons.add(createNewView(item));
+            View icon = existingViews.get(item);
+            icons.add(icon != null ? icon : createNewView(item));
         }
         arrangeChildren(icons, icons.size(), false);
     }
@@ -24,7 +24,11 @@ import static com.android.launcher3.folder.FolderIcon.DROP_IN_ANIMATION_DURATION
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.view.View;
@@ -33,7 +37,9 @@ import android.widget.TextView;
 import com.android.launcher3.BubbleTextView;
 import com.android.launcher3.WorkspaceItemInfo;
 import com.android.launcher3.Utilities;
+import com.android.launcher3.icons.BitmapRenderer;
 
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -68,8 +74,26 @@ public class PreviewItemManager {
     private static final int SLIDE_IN_FIRST_PAGE_ANIMATION_DURATION = 300;
     private static final int ITEM_SLIDE_IN_OUT_DISTANCE_PX = 200;
 
+    // The preview is rendered into a bitmap once it has not changed for one frame, and the bitmap
+    // is drawn instead of the clipped items until the preview changes again.
+    private static final int CACHE_STATE_DIRTY = 0;
+    private static final int CACHE_STATE_STABLE = 1;
+    private static final int CACHE_STATE_VALID = 2;
+
+    private final Paint mCachePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint mClipPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mClipLayerPaint = new Paint();
+    private Bitmap mCachedPreview;
+    private int mCacheState = CACHE_STATE_DIRTY;
+
+    // Stats about the preview cache, for dump
+    private static int sCachedDraws;
+    private static int sLiveDraws;
+    private static int sCacheRenders;
+
     public PreviewItemManager(FolderIcon icon) {
         mIcon = icon;
+        mClipLayerPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
     }
 
     /**
@@ -166,9 +190,80 @@ public class PreviewItemManager {
     }
 
     public void onParamsChanged() {
+        invalidateCachedPreview();
         mIcon.invalidate();
     }
 
+    /**
+     * Draws the preview items clipped to the folder background. If the preview is static, it is
+     * drawn from a cached bitmap.
+     *
+     * @param canAnimate true if the folder icon or its background may be animating
+     */
+    public void drawClipped(Canvas canvas, boolean canAnimate) {
+        PreviewBackground bg = mIcon.getFolderBackground();
+        if (canAnimate || bg.previewSize <= 0 || isAnimating()) {
+            mCacheState = CACHE_STATE_DIRTY;
+        } else if (mCacheState == CACHE_STATE_DIRTY) {
+            mCacheState = CACHE_STATE_STABLE;
+        } else {
+            if (mCacheState == CACHE_STATE_STABLE) {
+                renderCachedPreview(bg);
+            }
+            canvas.drawBitmap(mCachedPreview, bg.basePreviewOffsetX, bg.basePreviewOffsetY,
+                    mCachePaint);
+            sCachedDraws++;
+            return;
+        }
+
+        sLiveDraws++;
+        final int saveCount = canvas.save();
+        canvas.clipPath(bg.getClipPath());
+        draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
+
+    private void renderCachedPreview(PreviewBackground bg) {
+        int size = bg.previewSize;
+        // The icons can be hardware bitmaps, which can only be drawn by the hardware renderer
+        mCachedPreview = BitmapRenderer.createHardwareBitmap(size, size, canvas -> {
+            canvas.translate(-bg.basePreviewOffsetX, -bg.basePreviewOffsetY);
+            // Mask the items with the shape, as clip paths are not always anti-aliased
+            canvas.drawPath(bg.getClipPath(), mClipPaint);
+            canvas.saveLayer(bg.basePreviewOffsetX, bg.basePreviewOffsetY,
+                    bg.basePreviewOffsetX + size, bg.basePreviewOffsetY + size, mClipLayerPaint);
+            draw(canvas);
+            canvas.restore();
+        });
+
+        mCacheState = CACHE_STATE_VALID;
+        sCacheRenders++;
+    }
+
+    /**
+     * Marks the cached preview as out of date, it is rendered again once the preview is static.
+     */
+    public void invalidateCachedPreview() {
+        mCacheState = CACHE_STATE_DIRTY;
+    }
+
+    private boolean isAnimating() {
+        if (mShouldSlideInFirstPage || mIcon.mFolder.isOpen()) {
+            return true;
+        }
+        for (int i = 0; i < mFirstPageParams.size(); i++) {
+            if (mFirstPageParams.get(i).anim != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void dumpStats(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Folder previews: cachedDraws=" + sCachedDraws
+                + " liveDraws=" + sLiveDraws + " cacheRenders=" + sCacheRenders);
+    }
+
     private void drawPreviewItem(Canvas canvas, PreviewItemDrawingParams params) {
         canvas.save();
         canvas.translate(params.transX, params.transY);
@@ -196,10 +291,12 @@ public class PreviewItemManager {
                 mFirstPageParams.get(index) : null;
         if (params != null) {
             params.hidden = hidden;
+            invalidateCachedPreview();
         }
     }
 
     void buildParamsForPage(int page, ArrayList<PreviewItemDrawingParams> params, boolean animate) {
+        invalidateCachedPreview();
         List<BubbleTextView> items = mIcon.getPreviewItemsOnPage(page);
         int prevNumItems = params.size();
 
@@ -245,6 +342,8 @@ public class PreviewItemManager {
     }
 
     void onFolderClose(int currentPage) {
+        // The icons may have changed while they were drawn in the folder
+        invalidateCachedPreview();
         // If we are not closing on the first page, we animate the current page preview items
         // out, and animate the first page preview items in.
         mShouldSlideInFirstPage = currentPage != 0;
@@ -29,6 +29,7 @@ import android.os.Handler;
 import android.view.View;
 
 import com.android.launcher3.BubbleTextView;
+import com.android.launcher3.FastBitmapDrawable;
 import com.android.launcher3.Launcher;
 import com.android.launcher3.R;
 import com.android.launcher3.config.FeatureFlags;
@@ -38,13 +39,31 @@ import com.android.launcher3.util.UiThreadHelper;
 import com.android.launcher3.widget.LauncherAppWidgetHostView;
 import com.android.launcher3.widget.PendingAppWidgetHostView;
 
+import java.io.PrintWriter;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 
 /**
  * A utility class to generate preview bitmap for dragging.
  */
 public class DragPreviewProvider {
 
+    private static final int MAX_CACHED_DRAG_BITMAPS = 4;
+
+    /**
+     * Drag bitmaps and outlines of the last dragged icons, most recent first, so that dragging
+     * the same icon again does not render them again. Only plain {@link FastBitmapDrawable} icons
+     * are cached, as they are drawn only from their bitmap, size and scale. Accessed on the main
+     * thread only.
+     */
+    private static final ArrayList<CachedDragBitmap> sCachedDragBitmaps = new ArrayList<>();
+
+    // Stats, for dump
+    private static int sDragBitmapsCreated;
+    private static int sDragBitmapsReused;
+    private static int sOutlinesGenerated;
+    private static int sOutlinesReused;
+
     private final Rect mTempRect = new Rect();
 
     protected final View mView;
@@ -57,6 +76,8 @@ public class DragPreviewProvider {
     private OutlineGeneratorCallback mOutlineGeneratorCallback;
     public Bitmap generatedDragOutline;
 
+    private CachedDragBitmap mCachedDragBitmap;
+
     public DragPreviewProvider(View view) {
         this(view, view.getContext());
     }
@@ -115,18 +136,38 @@ public class DragPreviewProvider {
     }
 
     /**
-     * Returns a new bitmap to show when the {@link #mView} is being dragged around.
-     * Responsibility for the bitmap is transferred to the caller.
+     * Returns a bitmap to show when the {@link #mView} is being dragged around.
+     * The bitmap can be shared with other drags of the same icon, and must not be modified.
      */
     public Bitmap createDragBitmap() {
         int width = mView.getWidth();
         int height = mView.getHeight();
+        mCachedDragBitmap = null;
 
         if (mView instanceof BubbleTextView) {
             Drawable d = ((BubbleTextView) mView).getIcon();
             Rect bounds = getDrawableBounds(d);
             width = bounds.width();
             height = bounds.height();
+
+            if (isCacheable(d)) {
+                FastBitmapDrawable icon = (FastBitmapDrawable) d;
+                mCachedDragBitmap = getCachedDragBitmap(icon, width, height);
+                if (mCachedDragBitmap != null) {
+                    sDragBitmapsReused++;
+                    return mCachedDragBitmap.dragBitmap;
+                }
+
+                Bitmap b = BitmapRenderer.createHardwareBitmap(width + blurSizeOutline,
+                        height + blurSizeOutline, (c) -> drawDragView(c, 1));
+                sDragBitmapsCreated++;
+                mCachedDragBitmap = new CachedDragBitmap(icon, width, height, b);
+                sCachedDragBitmaps.add(0, mCachedDragBitmap);
+                if (sCachedDragBitmaps.size() > MAX_CACHED_DRAG_BITMAPS) {
+                    sCachedDragBitmaps.remove(MAX_CACHED_DRAG_BITMAPS);
+                }
+                return b;
+            }
         } else if (mView instanceof LauncherAppWidgetHostView) {
             float scale = ((LauncherAppWidgetHostView) mView).getScaleToFit();
             width = (int) (mView.getWidth() * scale);
@@ -143,19 +184,54 @@ public class DragPreviewProvider {
             }
         }
 
+        sDragBitmapsCreated++;
         return BitmapRenderer.createHardwareBitmap(width + blurSizeOutline,
                 height + blurSizeOutline, (c) -> drawDragView(c, 1));
     }
 
+    private static boolean isCacheable(Drawable d) {
+        return d.getClass() == FastBitmapDrawable.class && d.getColorFilter() == null
+                && d.getAlpha() == 255;
+    }
+
+    private static CachedDragBitmap getCachedDragBitmap(FastBitmapDrawable icon, int width,
+            int height) {
+        for (int i = 0; i < sCachedDragBitmaps.size(); i++) {
+            CachedDragBitmap cached = sCachedDragBitmaps.get(i);
+            if (cached.icon == icon.getBitmap() && cached.width == width
+                    && cached.height == height && cached.scale == icon.getScale()) {
+                // Move it to the front, as the most recently used
+                sCachedDragBitmaps.add(0, sCachedDragBitmaps.remove(i));
+                return cached;
+            }
+        }
+        return null;
+    }
+
     public final void generateDragOutline(Bitmap preview) {
         if (FeatureFlags.IS_DOGFOOD_BUILD && mOutlineGeneratorCallback != null) {
             throw new RuntimeException("Drag outline generated twice");
         }
 
-        mOutlineGeneratorCallback = new OutlineGeneratorCallback(preview);
+        CachedDragBitmap cached = mCachedDragBitmap != null
+                && mCachedDragBitmap.dragBitmap == preview ? mCachedDragBitmap : null;
+        if (cached != null && cached.outline != null) {
+            sOutlinesReused++;
+            generatedDragOutline = cached.outline;
+            return;
+        }
+
+        mOutlineGeneratorCallback = new OutlineGeneratorCallback(preview, cached);
         new Handler(UiThreadHelper.getBackgroundLooper()).post(mOutlineGeneratorCallback);
     }
 
+    public static void dumpStats(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Drag previews: bitmapsCreated=" + sDragBitmapsCreated
+                + " bitmapsReused=" + sDragBitmapsReused
+                + " outlinesGenerated=" + sOutlinesGenerated
+                + " outlinesReused=" + sOutlinesReused);
+    }
+
     protected static Rect getDrawableBounds(Drawable d) {
         Rect bounds = new Rect();
         d.copyBounds(bounds);
@@ -191,10 +267,12 @@ public class DragPreviewProvider {
 
         private final Bitmap mPreviewSnapshot;
         private final Context mContext;
+        private final CachedDragBitmap mCachedDragBitmap;
 
-        OutlineGeneratorCallback(Bitmap preview) {
+        OutlineGeneratorCallback(Bitmap preview, CachedDragBitmap cachedDragBitmap) {
             mPreviewSnapshot = preview;
             mContext = mView.getContext();
+            mCachedDragBitmap = cachedDragBitmap;
         }
 
         @Override
@@ -265,6 +343,29 @@ public class DragPreviewProvider {
             thickInnerBlur.recycle();
 
             generatedDragOutline = preview;
+            sOutlinesGenerated++;
+            if (mCachedDragBitmap != null) {
+                mCachedDragBitmap.outline = preview;
+            }
+        }
+    }
+
+    private static class CachedDragBitmap {
+
+        final Bitmap icon;
+        final int width;
+        final int height;
+        final float scale;
+        final Bitmap dragBitmap;
+        // Set on the background thread once the outline is generated
+        volatile Bitmap outline;
+
+        CachedDragBitmap(FastBitmapDrawable icon, int width, int height, Bitmap dragBitmap) {
+            this.icon = icon.getBitmap();
+            this.width = width;
+            this.height = height;
+            this.scale = icon.getScale();
+            this.dragBitmap = dragBitmap;
         }
     }
 }
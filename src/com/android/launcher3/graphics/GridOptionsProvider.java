@@ -2,7 +2,7 @@ package com.android.launcher3.graphics;
 
 import android.content.ContentProvider;
 import android.content.ContentValues;
-import android.content.res.XmlResourceParser;
+import android.content.res.Configuration;
 import android.database.Cursor;
 import android.database.MatrixCursor;
 import android.graphics.Bitmap;
@@ -12,21 +12,16 @@ import android.os.ParcelFileDescriptor;
 import android.os.ParcelFileDescriptor.AutoCloseOutputStream;
 import android.text.TextUtils;
 import android.util.Log;
-import android.util.Xml;
 
 import com.android.launcher3.InvariantDeviceProfile;
 import com.android.launcher3.InvariantDeviceProfile.GridOption;
-import com.android.launcher3.R;
 import com.android.launcher3.util.LooperExecutor;
 import com.android.launcher3.util.UiThreadHelper;
 
-import org.xmlpull.v1.XmlPullParser;
-import org.xmlpull.v1.XmlPullParserException;
-
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.Future;
 
@@ -62,19 +57,25 @@ public class GridOptionsProvider extends ContentProvider {
     private static final String KEY_PREVIEW = "preview";
     private static final String MIME_TYPE_PNG = "image/png";
 
-    public static final PipeDataWriter<Future<Bitmap>> BITMAP_WRITER =
-            new PipeDataWriter<Future<Bitmap>>() {
+    public static final PipeDataWriter<Future<byte[]>> PNG_WRITER =
+            new PipeDataWriter<Future<byte[]>>() {
                 @Override
                 public void writeDataToPipe(ParcelFileDescriptor output, Uri uri, String s,
-                        Bundle bundle, Future<Bitmap> bitmap) {
+                        Bundle bundle, Future<byte[]> png) {
                     try (AutoCloseOutputStream os = new AutoCloseOutputStream(output)) {
-                        bitmap.get().compress(Bitmap.CompressFormat.PNG, 100, os);
+                        os.write(png.get());
                     } catch (Exception e) {
                         Log.w(TAG, "fail to write to pipe", e);
                     }
                 }
             };
 
+    /**
+     * Previews rendered for each grid, as PNG data. A preview is rendered again only when the
+     * configuration changes, as it only depends on the grid and the resources.
+     */
+    private final HashMap<String, CachedPreview> mPreviewCache = new HashMap<>();
+
     @Override
     public boolean onCreate() {
         return true;
@@ -102,22 +103,12 @@ public class GridOptionsProvider extends ContentProvider {
     }
 
     private List<GridOption> parseAllGridOptions() {
-        List<GridOption> result = new ArrayList<>();
-        try (XmlResourceParser parser = getContext().getResources().getXml(R.xml.device_profiles)) {
-            final int depth = parser.getDepth();
-            int type;
-            while (((type = parser.next()) != XmlPullParser.END_TAG ||
-                    parser.getDepth() > depth) && type != XmlPullParser.END_DOCUMENT) {
-                if ((type == XmlPullParser.START_TAG)
-                        && GridOption.TAG_NAME.equals(parser.getName())) {
-                    result.add(new GridOption(getContext(), Xml.asAttributeSet(parser)));
-                }
-            }
-        } catch (IOException | XmlPullParserException e) {
+        try {
+            return InvariantDeviceProfile.getAllGridOptions(getContext());
+        } catch (RuntimeException e) {
             Log.e(TAG, "Error parsing device profile", e);
             return Collections.emptyList();
         }
-        return result;
     }
 
     @Override
@@ -173,19 +164,72 @@ public class GridOptionsProvider extends ContentProvider {
             throw new FileNotFoundException("Invalid preview url");
         }
 
-        InvariantDeviceProfile idp;
         try {
-            idp = new InvariantDeviceProfile(getContext(), profileName);
+            return openPipeHelper(uri, MIME_TYPE_PNG, null, getPreview(profileName), PNG_WRITER);
+        } catch (FileNotFoundException e) {
+            throw e;
         } catch (Exception e) {
             throw new FileNotFoundException(e.getMessage());
         }
+    }
 
-        LooperExecutor executor = new LooperExecutor(UiThreadHelper.getBackgroundLooper());
-        try {
-            return openPipeHelper(uri, MIME_TYPE_PNG, null,
-                    executor.submit(new LauncherPreviewRenderer(getContext(), idp)), BITMAP_WRITER);
-        } catch (Exception e) {
-            throw new FileNotFoundException(e.getMessage());
+    /**
+     * Returns the preview for the grid {@param profileName}, rendering it if the cached preview is
+     * missing or out of date. Concurrent requests for the same grid share the same rendering.
+     */
+    private Future<byte[]> getPreview(String profileName) throws FileNotFoundException {
+        Configuration config = getContext().getResources().getConfiguration();
+        // The lookup and the insertion are done together, so that concurrent requests never
+        // start more than one rendering.
+        synchronized (mPreviewCache) {
+            CachedPreview preview = mPreviewCache.get(profileName);
+            if (preview != null && preview.config.equals(config) && !preview.hasFailed()) {
+                return preview.png;
+            }
+
+            InvariantDeviceProfile idp;
+            try {
+                idp = new InvariantDeviceProfile(getContext(), profileName);
+            } catch (Exception e) {
+                throw new FileNotFoundException(e.getMessage());
+            }
+
+            LauncherPreviewRenderer renderer = new LauncherPreviewRenderer(getContext(), idp);
+            LooperExecutor executor = new LooperExecutor(UiThreadHelper.getBackgroundLooper());
+            preview = new CachedPreview(config, executor.submit(() -> {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                renderer.call().compress(Bitmap.CompressFormat.PNG, 100, out);
+                return out.toByteArray();
+            }));
+            mPreviewCache.put(profileName, preview);
+            return preview.png;
+        }
+    }
+
+    private static class CachedPreview {
+
+        final Configuration config;
+        final Future<byte[]> png;
+
+        CachedPreview(Configuration config, Future<byte[]> png) {
+            this.config = new Configuration(config);
+            this.png = png;
+        }
+
+        /**
+         * Returns true if the rendering failed, in which case the preview is rendered again on
+         * the next request.
+         */
+        boolean hasFailed() {
+            if (!png.isDone()) {
+                return false;
+            }
+            try {
+                png.get();
+                return false;
+            } catch (Exception e) {
+                return true;
+            }
         }
     }
 }
@@ -48,7 +48,14 @@ public class LauncherActivtiyCachingLogic implements CachingLogic<LauncherActivi
     @Override
     public void loadIcon(Context context, LauncherActivityInfo object,
             BitmapInfo target) {
+        loadIcon(context, object, target, null);
+    }
+
+    @Override
+    public void loadIcon(Context context, LauncherActivityInfo object, BitmapInfo target,
+            NormalizationInfo normalizationInfo) {
         LauncherIcons li = LauncherIcons.obtain(context);
+        li.setNormalizationInfo(normalizationInfo);
         li.createBadgedIconBitmap(mCache.getFullResIcon(object),
                 object.getUser(), object.getApplicationInfo().targetSdkVersion).applyTo(target);
         li.recycle();
@@ -17,6 +17,8 @@
 package com.android.launcher3.model;
 
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.android.launcher3.AllAppsList;
@@ -91,10 +93,11 @@ public abstract class BaseLoaderResults {
         ArrayList<LauncherAppWidgetInfo> appWidgets = new ArrayList<>();
         final IntArray orderedScreenIds = new IntArray();
 
+        BgDataModel.Snapshot snapshot = mBgDataModel.getSnapshot();
+        workspaceItems.addAll(snapshot.workspaceItems);
+        appWidgets.addAll(snapshot.appWidgets);
+        orderedScreenIds.addAll(snapshot.collectWorkspaceScreens());
         synchronized (mBgDataModel) {
-            workspaceItems.addAll(mBgDataModel.workspaceItems);
-            appWidgets.addAll(mBgDataModel.appWidgets);
-            orderedScreenIds.addAll(mBgDataModel.collectWorkspaceScreens());
             mBgDataModel.lastBindId++;
             mMyBindingId = mBgDataModel.lastBindId;
         }
@@ -125,6 +128,12 @@ public abstract class BaseLoaderResults {
                 otherAppWidgets);
         sortWorkspaceItemsSpatially(currentWorkspaceItems);
         sortWorkspaceItemsSpatially(otherWorkspaceItems);
+        if (validFirstPage) {
+            // Bind the pages adjacent to the current page first, as the user is most likely to
+            // swipe to them while the remaining pages are being bound.
+            sortItemsByPageDistance(otherWorkspaceItems, orderedScreenIds, currentScreen);
+            sortItemsByPageDistance(otherAppWidgets, orderedScreenIds, currentScreen);
+        }
 
         // Tell the workspace that we're about to start binding items
         executeCallbacksTask(c -> {
@@ -147,8 +156,10 @@ public abstract class BaseLoaderResults {
         final Executor deferredExecutor =
                 validFirstPage ? new ViewOnDrawExecutor() : mainExecutor;
 
-        executeCallbacksTask(c -> c.finishFirstPageBind(
-                validFirstPage ? (ViewOnDrawExecutor) deferredExecutor : null), mainExecutor);
+        executeCallbacksTask(c -> {
+            c.finishFirstPageBind(validFirstPage ? (ViewOnDrawExecutor) deferredExecutor : null);
+            logTimeToFirstIcon("workspace");
+        }, mainExecutor);
 
         bindWorkspaceItems(otherWorkspaceItems, deferredExecutor);
         bindAppWidgets(otherAppWidgets, deferredExecutor);
@@ -169,6 +180,52 @@ public abstract class BaseLoaderResults {
         }
     }
 
+    /**
+     * Binds the last saved {@link WorkspaceSnapshot} if nothing has been bound yet in this
+     * process, so that the first screen is visible while the workspace is being loaded. The
+     * snapshot is replaced by the actual items in {@link #bindWorkspace()}.
+     */
+    public void bindWorkspaceSnapshot() {
+        Callbacks callbacks = mCallbacks.get();
+        if (callbacks == null) {
+            return;
+        }
+        int currentScreen = mPageToBindFirst != PagedView.INVALID_RESTORE_PAGE
+                ? mPageToBindFirst : callbacks.getCurrentWorkspaceScreen();
+        if (currentScreen != 0) {
+            // The snapshot only contains the first screen
+            return;
+        }
+        synchronized (mBgDataModel) {
+            if (mBgDataModel.lastBindId != 0) {
+                return;
+            }
+        }
+
+        WorkspaceSnapshot snapshot = WorkspaceSnapshot.load(mApp.getContext());
+        if (snapshot == null) {
+            return;
+        }
+        synchronized (mBgDataModel) {
+            mBgDataModel.lastBindId++;
+            mMyBindingId = mBgDataModel.lastBindId;
+        }
+        executeCallbacksTask(c -> {
+            c.clearPendingBinds();
+            c.startBinding();
+            c.bindScreens(snapshot.getScreenIds());
+            c.bindItems(snapshot.items, false);
+            // Fade in the snapshot, the actual bind then waits for the same animation
+            c.finishFirstPageBind(null);
+            logTimeToFirstIcon("snapshot");
+        }, mUiExecutor);
+    }
+
+    private static void logTimeToFirstIcon(String source) {
+        Log.d(TAG, "Bound first screen from " + source + ", "
+                + (SystemClock.uptimeMillis() - Process.getStartUptimeMillis())
+                + "ms since process start");
+    }
 
     /** Filters the set of items who are directly or indirectly (via another container) on the
      * specified screen. */
@@ -252,8 +309,30 @@ public abstract class BaseLoaderResults {
         });
     }
 
+    /**
+     * Stable sorts the items by the distance of their page from the {@param currentScreen}
+     */
+    private static <T extends ItemInfo> void sortItemsByPageDistance(ArrayList<T> items,
+            IntArray orderedScreenIds, int currentScreen) {
+        Collections.sort(items, Comparator.comparingInt((T info) ->
+                info.container == LauncherSettings.Favorites.CONTAINER_DESKTOP
+                        ? Math.abs(orderedScreenIds.indexOf(info.screenId) - currentScreen)
+                        : 0));
+    }
+
     protected void bindWorkspaceItems(final ArrayList<ItemInfo> workspaceItems,
             final Executor executor) {
+        if (executor instanceof ViewOnDrawExecutor) {
+            // Bind one item per task, and let the executor decide how many items fit in a frame
+            for (ItemInfo item : workspaceItems) {
+                int type = item.itemType == LauncherSettings.Favorites.ITEM_TYPE_FOLDER
+                        ? ViewOnDrawExecutor.TASK_TYPE_FOLDER : ViewOnDrawExecutor.TASK_TYPE_ICON;
+                executeCallbacksTask(c -> c.bindItems(Collections.singletonList(item), false),
+                        executor, type);
+            }
+            return;
+        }
+
         // Bind the workspace items
         int N = workspaceItems.size();
         for (int i = 0; i < N; i += ITEMS_CHUNK) {
@@ -270,8 +349,8 @@ public abstract class BaseLoaderResults {
         N = appWidgets.size();
         for (int i = 0; i < N; i++) {
             final ItemInfo widget = appWidgets.get(i);
-            executeCallbacksTask(
-                    c -> c.bindItems(Collections.singletonList(widget), false), executor);
+            executeCallbacksTask(c -> c.bindItems(Collections.singletonList(widget), false),
+                    executor, ViewOnDrawExecutor.TASK_TYPE_WIDGET);
         }
     }
 
@@ -287,7 +366,20 @@ public abstract class BaseLoaderResults {
     public abstract void bindWidgets();
 
     protected void executeCallbacksTask(CallbackTask task, Executor executor) {
-        executor.execute(() -> {
+        executor.execute(newCallbacksRunnable(task));
+    }
+
+    /**
+     * Same as {@link #executeCallbacksTask(CallbackTask, Executor)}, but lets the executor know
+     * the expected cost of the task.
+     * @param taskType one of the task types defined in {@link ViewOnDrawExecutor}
+     */
+    protected void executeCallbacksTask(CallbackTask task, Executor executor, int taskType) {
+        executor.execute(ViewOnDrawExecutor.newTypedTask(taskType, newCallbacksRunnable(task)));
+    }
+
+    private Runnable newCallbacksRunnable(CallbackTask task) {
+        return () -> {
             if (mMyBindingId != mBgDataModel.lastBindId) {
                 Log.d(TAG, "Too many consecutive reloads, skipping obsolete data-bind");
                 return;
@@ -296,7 +388,7 @@ public abstract class BaseLoaderResults {
             if (callbacks != null) {
                 task.execute(callbacks);
             }
-        });
+        };
     }
 
     public LooperIdleLock newIdleLock(Object lock) {
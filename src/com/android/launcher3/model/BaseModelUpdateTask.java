@@ -65,6 +65,8 @@ public abstract class BaseModelUpdateTask implements ModelUpdateTask {
             return;
         }
         execute(mApp, mDataModel, mAllAppsList);
+        // Tasks can update the icons and titles of the items in place
+        mModel.scheduleWorkspaceSnapshotSave();
     }
 
     /**
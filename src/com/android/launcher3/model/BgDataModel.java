@@ -15,6 +15,7 @@
  */
 package com.android.launcher3.model;
 
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.pm.ShortcutInfo;
 import android.os.UserHandle;
@@ -38,8 +39,11 @@ import com.android.launcher3.shortcuts.DeepShortcutManager;
 import com.android.launcher3.shortcuts.ShortcutKey;
 import com.android.launcher3.util.ComponentKey;
 import com.android.launcher3.util.IntArray;
+import com.android.launcher3.util.IntHashMap;
 import com.android.launcher3.util.IntSet;
 import com.android.launcher3.util.IntSparseArrayMap;
+import com.android.launcher3.util.ItemInfoMatcher;
+import com.android.launcher3.util.PackageUserKey;
 import com.google.protobuf.nano.MessageNano;
 
 import java.io.FileDescriptor;
@@ -48,10 +52,15 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * All the data stored in-memory and managed by the LauncherModel
@@ -64,7 +73,7 @@ public class BgDataModel {
      * Map of all the ItemInfos (shortcuts, folders, and widgets) created by
      * LauncherModel to their ids
      */
-    public final IntSparseArrayMap<ItemInfo> itemsIdMap = new IntSparseArrayMap<>();
+    public final IntHashMap<ItemInfo> itemsIdMap = new IntHashMap<>();
 
     /**
      * List of all the folders and shortcuts directly on the home screen (no widgets
@@ -80,7 +89,13 @@ public class BgDataModel {
     /**
      * Map of id to FolderInfos of all the folders created by LauncherModel
      */
-    public final IntSparseArrayMap<FolderInfo> folders = new IntSparseArrayMap<>();
+    public final IntHashMap<FolderInfo> folders = new IntHashMap<>();
+
+    /**
+     * Map of package and user to the ids of the items in {@link #itemsIdMap} referencing that
+     * package, either as their target or as the source of their icon.
+     */
+    private final HashMap<PackageUserKey, IntArray> mPackageItemIds = new HashMap<>();
 
     /**
      * Map of ShortcutKey to the number of times it is pinned.
@@ -107,6 +122,54 @@ public class BgDataModel {
      */
     public int lastBindId = 0;
 
+    // Only replaced while holding the lock, readers always get the last published snapshot.
+    private volatile Snapshot mSnapshot = new Snapshot(this, 0);
+    private int mVersion = 0;
+    // Only modified while holding the lock, but read by snapshot readers for the stats.
+    private volatile int mUpdateDepth = 0;
+
+    private final AtomicInteger mSnapshotReads = new AtomicInteger();
+    private final AtomicInteger mSnapshotReadsDuringUpdate = new AtomicInteger();
+    private int mSnapshotBuilds = 0;
+
+    /**
+     * Returns the last published snapshot of the model. This never blocks, and while the model
+     * is being updated, returns the state before the update.
+     */
+    public Snapshot getSnapshot() {
+        mSnapshotReads.incrementAndGet();
+        if (mUpdateDepth > 0) {
+            // Without snapshots, this reader would have waited for the update to complete.
+            mSnapshotReadsDuringUpdate.incrementAndGet();
+        }
+        return mSnapshot;
+    }
+
+    /**
+     * Defers publishing a new snapshot until {@link #endUpdate()} is called. Used when making
+     * a large number of changes to the model, so that readers never see a partial state.
+     */
+    public synchronized void beginUpdate() {
+        mUpdateDepth++;
+    }
+
+    public synchronized void endUpdate() {
+        mUpdateDepth--;
+        onDataChanged();
+    }
+
+    /**
+     * Publishes a new snapshot, unless an update is in progress. Must be called after directly
+     * modifying any of the item collections.
+     */
+    public synchronized void onDataChanged() {
+        mVersion++;
+        if (mUpdateDepth == 0) {
+            mSnapshot = new Snapshot(this, mVersion);
+            mSnapshotBuilds++;
+        }
+    }
+
     /**
      * Clears all the data
      */
@@ -115,16 +178,22 @@ public class BgDataModel {
         appWidgets.clear();
         folders.clear();
         itemsIdMap.clear();
+        mPackageItemIds.clear();
         pinnedShortcutCounts.clear();
         deepShortcutMap.clear();
+        onDataChanged();
     }
 
     /**
      * Creates an array of valid workspace screens based on current items in the model.
      */
     public synchronized IntArray collectWorkspaceScreens() {
+        return collectWorkspaceScreens(itemsIdMap);
+    }
+
+    private static IntArray collectWorkspaceScreens(Iterable<ItemInfo> items) {
         IntSet screenSet = new IntSet();
-        for (ItemInfo item: itemsIdMap) {
+        for (ItemInfo item: items) {
             if (item.container == LauncherSettings.Favorites.CONTAINER_DESKTOP) {
                 screenSet.add(item.screenId);
             }
@@ -135,46 +204,56 @@ public class BgDataModel {
         return screenSet.getArray();
     }
 
-    public synchronized void dump(String prefix, FileDescriptor fd, PrintWriter writer,
-            String[] args) {
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        Snapshot snapshot = getSnapshot();
         if (Arrays.asList(args).contains("--proto")) {
-            dumpProto(prefix, fd, writer, args);
+            dumpProto(snapshot, prefix, fd, writer, args);
             return;
         }
-        writer.println(prefix + "Data Model:");
+        writer.println(prefix + "Data Model: version=" + snapshot.version);
         writer.println(prefix + " ---- workspace items ");
-        for (int i = 0; i < workspaceItems.size(); i++) {
-            writer.println(prefix + '\t' + workspaceItems.get(i).toString());
+        for (int i = 0; i < snapshot.workspaceItems.size(); i++) {
+            writer.println(prefix + '\t' + snapshot.workspaceItems.get(i).toString());
         }
         writer.println(prefix + " ---- appwidget items ");
-        for (int i = 0; i < appWidgets.size(); i++) {
-            writer.println(prefix + '\t' + appWidgets.get(i).toString());
+        for (int i = 0; i < snapshot.appWidgets.size(); i++) {
+            writer.println(prefix + '\t' + snapshot.appWidgets.get(i).toString());
         }
         writer.println(prefix + " ---- folder items ");
-        for (int i = 0; i< folders.size(); i++) {
-            writer.println(prefix + '\t' + folders.valueAt(i).toString());
+        for (int i = 0; i < snapshot.folders.size(); i++) {
+            writer.println(prefix + '\t' + snapshot.folders.get(i).toString());
         }
         writer.println(prefix + " ---- items id map ");
-        for (int i = 0; i< itemsIdMap.size(); i++) {
-            writer.println(prefix + '\t' + itemsIdMap.valueAt(i).toString());
+        for (int i = 0; i < snapshot.items.size(); i++) {
+            writer.println(prefix + '\t' + snapshot.items.get(i).toString());
         }
+        writer.println(prefix + "snapshot reads: " + mSnapshotReads.get()
+                + ", during updates: " + mSnapshotReadsDuringUpdate.get()
+                + ", builds: " + mSnapshotBuilds);
 
         if (args.length > 0 && TextUtils.equals(args[0], "--all")) {
+            ArrayList<Integer> counts;
+            synchronized (this) {
+                counts = new ArrayList<>(deepShortcutMap.values());
+            }
             writer.println(prefix + "shortcut counts ");
-            for (Integer count : deepShortcutMap.values()) {
+            for (Integer count : counts) {
                 writer.print(count + ", ");
             }
             writer.println();
         }
     }
 
-    private synchronized void dumpProto(String prefix, FileDescriptor fd, PrintWriter writer,
-            String[] args) {
+    private void dumpProto(Snapshot snapshot, String prefix, FileDescriptor fd,
+            PrintWriter writer, String[] args) {
+        List<ItemInfo> workspaceItems = snapshot.workspaceItems;
+        List<LauncherAppWidgetInfo> appWidgets = snapshot.appWidgets;
+        List<FolderInfo> folders = snapshot.folders;
 
         // Add top parent nodes. (L1)
         DumpTargetWrapper hotseat = new DumpTargetWrapper(ContainerType.HOTSEAT, 0);
         IntSparseArrayMap<DumpTargetWrapper> workspaces = new IntSparseArrayMap<>();
-        IntArray workspaceScreens = collectWorkspaceScreens();
+        IntArray workspaceScreens = snapshot.collectWorkspaceScreens();
         for (int i = 0; i < workspaceScreens.size(); i++) {
             workspaces.put(workspaceScreens.get(i),
                     new DumpTargetWrapper(ContainerType.WORKSPACE, i));
@@ -182,7 +261,7 @@ public class BgDataModel {
         DumpTargetWrapper dtw;
         // Add non leaf / non top nodes (L2)
         for (int i = 0; i < folders.size(); i++) {
-            FolderInfo fInfo = folders.valueAt(i);
+            FolderInfo fInfo = folders.get(i);
             dtw = new DumpTargetWrapper(ContainerType.FOLDER, folders.size());
             dtw.writeToDumpTarget(fInfo);
             for(WorkspaceItemInfo sInfo: fInfo.contents) {
@@ -294,11 +373,14 @@ public class BgDataModel {
                     break;
             }
             itemsIdMap.remove(item.id);
+            updatePackageIndex(item, false);
         }
+        onDataChanged();
     }
 
     public synchronized void addItem(Context context, ItemInfo item, boolean newItem) {
         itemsIdMap.put(item.id, item);
+        updatePackageIndex(item, true);
         switch (item.itemType) {
             case LauncherSettings.Favorites.ITEM_TYPE_FOLDER:
                 folders.put(item.id, (FolderInfo) item);
@@ -345,6 +427,98 @@ public class BgDataModel {
                 appWidgets.add((LauncherAppWidgetInfo) item);
                 break;
         }
+        onDataChanged();
+    }
+
+    private void updatePackageIndex(ItemInfo item, boolean added) {
+        if (item.user == null) {
+            return;
+        }
+        String targetPackage = null;
+        String iconPackage = null;
+        if (item instanceof LauncherAppWidgetInfo) {
+            ComponentName provider = ((LauncherAppWidgetInfo) item).providerName;
+            targetPackage = provider == null ? null : provider.getPackageName();
+        } else if (item instanceof WorkspaceItemInfo) {
+            WorkspaceItemInfo si = (WorkspaceItemInfo) item;
+            ComponentName cn = si.getTargetComponent();
+            targetPackage = cn == null ? null : cn.getPackageName();
+            iconPackage = si.iconResource == null ? null : si.iconResource.packageName;
+        }
+        updatePackageIndex(targetPackage, item, added);
+        if (iconPackage != null && !iconPackage.equals(targetPackage)) {
+            updatePackageIndex(iconPackage, item, added);
+        }
+    }
+
+    private void updatePackageIndex(String packageName, ItemInfo item, boolean added) {
+        if (packageName == null) {
+            return;
+        }
+        PackageUserKey key = new PackageUserKey(packageName, item.user);
+        IntArray ids = mPackageItemIds.get(key);
+        if (added) {
+            if (ids == null) {
+                ids = new IntArray();
+                mPackageItemIds.put(key, ids);
+            }
+            if (!ids.contains(item.id)) {
+                ids.add(item.id);
+            }
+        } else if (ids != null) {
+            ids.removeValue(item.id);
+            if (ids.isEmpty()) {
+                mPackageItemIds.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the items referencing any of the {@param packageNames} for the {@param user}, based
+     * on the target and icon of the item at the time it was added to the model. This avoids
+     * going through all the items in {@link #itemsIdMap}, but callers should still verify that
+     * the items match.
+     */
+    public synchronized ArrayList<ItemInfo> getItemsForPackages(
+            Collection<String> packageNames, UserHandle user) {
+        ArrayList<PackageUserKey> keys = new ArrayList<>(packageNames.size());
+        for (String packageName : packageNames) {
+            keys.add(new PackageUserKey(packageName, user));
+        }
+        return getItemsForPackages(keys);
+    }
+
+    /**
+     * Same as {@link #getItemsForPackages(Collection, UserHandle)}, for multiple users
+     */
+    public synchronized ArrayList<ItemInfo> getItemsForPackages(
+            Collection<PackageUserKey> packageUserKeys) {
+        ArrayList<ItemInfo> result = new ArrayList<>();
+        IntSet added = new IntSet();
+        for (PackageUserKey key : packageUserKeys) {
+            IntArray ids = mPackageItemIds.get(key);
+            if (ids == null) {
+                continue;
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                int id = ids.get(i);
+                ItemInfo item = itemsIdMap.get(id);
+                if (item != null && !added.contains(id)) {
+                    added.add(id);
+                    result.add(item);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all the items in the model matching {@param matcher}. If the matcher has a
+     * package scope, only the items referencing those packages are evaluated.
+     */
+    public synchronized HashSet<ItemInfo> filterItemInfos(ItemInfoMatcher matcher) {
+        Set<PackageUserKey> scope = matcher.getPackageScope();
+        return matcher.filterItemInfos(scope == null ? itemsIdMap : getItemsForPackages(scope));
     }
 
     /**
@@ -358,6 +532,7 @@ public class BgDataModel {
             // No placeholder -- create a new instance
             folderInfo = new FolderInfo();
             folders.put(id, folderInfo);
+            onDataChanged();
         }
         return folderInfo;
     }
@@ -391,4 +566,56 @@ public class BgDataModel {
             }
         }
     }
+
+    /**
+     * An immutable copy of the item collections of the model at a given version. Only the
+     * collections are copied, the items are shared with the model.
+     */
+    public static class Snapshot {
+
+        public final int version;
+
+        /** See {@link BgDataModel#workspaceItems} */
+        public final List<ItemInfo> workspaceItems;
+        /** See {@link BgDataModel#appWidgets} */
+        public final List<LauncherAppWidgetInfo> appWidgets;
+        /** See {@link BgDataModel#folders} */
+        public final List<FolderInfo> folders;
+        /** See {@link BgDataModel#itemsIdMap} */
+        public final List<ItemInfo> items;
+
+        private final IntHashMap<ItemInfo> mItemsIdMap;
+
+        private Snapshot(BgDataModel model, int version) {
+            this.version = version;
+            workspaceItems = Collections.unmodifiableList(new ArrayList<>(model.workspaceItems));
+            appWidgets = Collections.unmodifiableList(new ArrayList<>(model.appWidgets));
+
+            ArrayList<FolderInfo> folders = new ArrayList<>(model.folders.size());
+            for (FolderInfo folder : model.folders) {
+                folders.add(folder);
+            }
+            this.folders = Collections.unmodifiableList(folders);
+
+            ArrayList<ItemInfo> items = new ArrayList<>(model.itemsIdMap.size());
+            mItemsIdMap = new IntHashMap<>(model.itemsIdMap.size());
+            for (int i = 0; i < model.itemsIdMap.size(); i++) {
+                ItemInfo item = model.itemsIdMap.valueAt(i);
+                mItemsIdMap.put(model.itemsIdMap.keyAt(i), item);
+                items.add(item);
+            }
+            this.items = Collections.unmodifiableList(items);
+        }
+
+        public ItemInfo getItem(int id) {
+            return mItemsIdMap.get(id);
+        }
+
+        /**
+         * Same as {@link BgDataModel#collectWorkspaceScreens()}, for this snapshot
+         */
+        public IntArray collectWorkspaceScreens() {
+            return BgDataModel.collectWorkspaceScreens(items);
+        }
+    }
 }
@@ -31,6 +31,7 @@ import android.provider.BaseColumns;
 import android.text.TextUtils;
 import android.util.Log;
 import android.util.LongSparseArray;
+import android.util.LruCache;
 
 import com.android.launcher3.AppInfo;
 import com.android.launcher3.WorkspaceItemInfo;
@@ -61,6 +62,37 @@ public class LoaderCursor extends CursorWrapper {
 
     private static final String TAG = "LoaderCursor";
 
+    /**
+     * Columns read while loading the workspace
+     */
+    public static final String[] PROJECTION = new String[] {
+            LauncherSettings.Favorites._ID,
+            LauncherSettings.Favorites.TITLE,
+            LauncherSettings.Favorites.INTENT,
+            LauncherSettings.Favorites.CONTAINER,
+            LauncherSettings.Favorites.SCREEN,
+            LauncherSettings.Favorites.CELLX,
+            LauncherSettings.Favorites.CELLY,
+            LauncherSettings.Favorites.SPANX,
+            LauncherSettings.Favorites.SPANY,
+            LauncherSettings.Favorites.RANK,
+            LauncherSettings.Favorites.ITEM_TYPE,
+            LauncherSettings.Favorites.APPWIDGET_ID,
+            LauncherSettings.Favorites.APPWIDGET_PROVIDER,
+            LauncherSettings.Favorites.ICON_PACKAGE,
+            LauncherSettings.Favorites.ICON_RESOURCE,
+            LauncherSettings.Favorites.ICON,
+            LauncherSettings.Favorites.RESTORED,
+            LauncherSettings.Favorites.PROFILE_ID,
+            LauncherSettings.Favorites.OPTIONS,
+    };
+
+    /**
+     * Parsed intents keyed by their uri. This is kept across loads, as the workspace is reloaded
+     * with mostly the same items. Callers get a copy, as the intents are modified by the loader.
+     */
+    private static final LruCache<String, Intent> sIntentCache = new LruCache<>(256);
+
     public final LongSparseArray<UserHandle> allUsers = new LongSparseArray<>();
 
     private final Context mContext;
@@ -136,13 +168,20 @@ public class LoaderCursor extends CursorWrapper {
 
     public Intent parseIntent() {
         String intentDescription = getString(intentIndex);
-        try {
-            return TextUtils.isEmpty(intentDescription) ?
-                    null : Intent.parseUri(intentDescription, 0);
-        } catch (URISyntaxException e) {
-            Log.e(TAG, "Error parsing Intent");
+        if (TextUtils.isEmpty(intentDescription)) {
             return null;
         }
+        Intent intent = sIntentCache.get(intentDescription);
+        if (intent == null) {
+            try {
+                intent = Intent.parseUri(intentDescription, 0);
+            } catch (URISyntaxException e) {
+                Log.e(TAG, "Error parsing Intent");
+                return null;
+            }
+            sIntentCache.put(intentDescription, intent);
+        }
+        return new Intent(intent);
     }
 
     public WorkspaceItemInfo loadSimpleWorkspaceItem() {
@@ -167,6 +167,10 @@ public class LoaderTask implements Runnable {
 
         TraceHelper.beginSection(TAG);
         try (LauncherModel.LoaderTransaction transaction = mApp.getModel().beginLoader(this)) {
+            TraceHelper.partitionSection(TAG, "step 1.0: bind workspace snapshot");
+            mResults.bindWorkspaceSnapshot();
+
+            verifyNotStopped();
             TraceHelper.partitionSection(TAG, "step 1.1: loading workspace");
             loadWorkspace();
 
@@ -178,6 +182,10 @@ public class LoaderTask implements Runnable {
             TraceHelper.partitionSection(TAG, "step 1.3: send first screen broadcast");
             sendFirstScreenActiveInstallsBroadcast();
 
+            // The snapshot is saved on the worker thread after the loader completes, so that
+            // compressing its icons does not delay loading all apps.
+            mApp.getModel().scheduleWorkspaceSnapshotSave();
+
             // Take a break
             TraceHelper.partitionSection(TAG, "step 1 completed, wait for idle");
             waitForIdle();
@@ -248,6 +256,17 @@ public class LoaderTask implements Runnable {
     }
 
     private void loadWorkspace() {
+        // Readers keep using the previous model snapshot until the workspace is loaded. The update
+        // must end even if loading fails or is stopped, otherwise no snapshot is published again.
+        mBgDataModel.beginUpdate();
+        try {
+            loadWorkspaceItems();
+        } finally {
+            mBgDataModel.endUpdate();
+        }
+    }
+
+    private void loadWorkspaceItems() {
         final Context context = mApp.getContext();
         final ContentResolver contentResolver = context.getContentResolver();
         final PackageManagerHelper pmHelper = new PackageManagerHelper(context);
@@ -287,7 +306,8 @@ public class LoaderTask implements Runnable {
 
             Map<ShortcutKey, ShortcutInfo> shortcutKeyToPinnedShortcuts = new HashMap<>();
             final LoaderCursor c = new LoaderCursor(contentResolver.query(
-                    LauncherSettings.Favorites.CONTENT_URI, null, null, null, null), mApp);
+                    LauncherSettings.Favorites.CONTENT_URI, LoaderCursor.PROJECTION,
+                    null, null, null), mApp);
 
             HashMap<ComponentKey, AppWidgetProviderInfo> widgetProvidersMap = null;
 
@@ -241,6 +241,7 @@ public class ModelWriter {
             synchronized (mBgDataModel) {
                 checkItemInfoLocked(item.id, item, stackTrace);
                 mBgDataModel.addItem(mContext, item, true);
+                mModel.scheduleWorkspaceSnapshotSave();
                 verifier.verifyModel();
             }
         });
@@ -257,7 +258,7 @@ public class ModelWriter {
      * Removes all the items from the database matching {@param matcher}.
      */
     public void deleteItemsFromDatabase(ItemInfoMatcher matcher) {
-        deleteItemsFromDatabase(matcher.filterItemInfos(mBgDataModel.itemsIdMap));
+        deleteItemsFromDatabase(mBgDataModel.filterItemInfos(matcher));
     }
 
     /**
@@ -274,6 +275,7 @@ public class ModelWriter {
                 mBgDataModel.removeItem(mContext, item);
                 verifier.verifyModel();
             }
+            mModel.scheduleWorkspaceSnapshotSave();
         });
     }
 
@@ -292,6 +294,7 @@ public class ModelWriter {
 
             cr.delete(LauncherSettings.Favorites.getContentUri(info.id), null, null);
             mBgDataModel.removeItem(mContext, info);
+            mModel.scheduleWorkspaceSnapshotSave();
             verifier.verifyModel();
         });
     }
@@ -450,6 +453,8 @@ public class ModelWriter {
                 } else {
                     mBgDataModel.workspaceItems.remove(modelItem);
                 }
+                mBgDataModel.onDataChanged();
+                mModel.scheduleWorkspaceSnapshotSave();
                 mVerifier.verifyModel();
             }
         }
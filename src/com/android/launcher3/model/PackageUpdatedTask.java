@@ -117,6 +117,8 @@ public class PackageUpdatedTask extends BaseModelUpdateTask {
                     iconCache.updateIconsForPkg(packages[i], mUser);
                     appsList.updatePackage(context, packages[i], mUser);
                     app.getWidgetCache().removePackage(packages[i], mUser);
+                    DeepShortcutManager.getInstance(context)
+                            .invalidateShortcutCache(packages[i], mUser);
                 }
                 // Since package was just updated, the target must be available now.
                 flagOp = FlagOp.removeFlag(WorkspaceItemInfo.FLAG_DISABLED_NOT_AVAILABLE);
@@ -132,6 +134,8 @@ public class PackageUpdatedTask extends BaseModelUpdateTask {
                     if (DEBUG) Log.d(TAG, "mAllAppsList.removePackage " + packages[i]);
                     appsList.removePackage(packages[i], mUser);
                     app.getWidgetCache().removePackage(packages[i], mUser);
+                    DeepShortcutManager.getInstance(context)
+                            .invalidateShortcutCache(packages[i], mUser);
                 }
                 flagOp = FlagOp.addFlag(WorkspaceItemInfo.FLAG_DISABLED_NOT_AVAILABLE);
                 break;
@@ -181,7 +185,11 @@ public class PackageUpdatedTask extends BaseModelUpdateTask {
             // For system apps, package manager send OP_UPDATE when an app is enabled.
             final boolean isNewApkAvailable = mOp == OP_ADD || mOp == OP_UPDATE;
             synchronized (dataModel) {
-                for (ItemInfo info : dataModel.itemsIdMap) {
+                // Availability changes apply to all the packages of the user, other operations
+                // only need to look at the items referencing the changed packages.
+                Iterable<ItemInfo> items = mOp == OP_USER_AVAILABILITY_CHANGE
+                        ? dataModel.itemsIdMap : dataModel.getItemsForPackages(packageSet, mUser);
+                for (ItemInfo info : items) {
                     if (info instanceof WorkspaceItemInfo && mUser.equals(info.user)) {
                         WorkspaceItemInfo si = (WorkspaceItemInfo) info;
                         boolean infoUpdated = false;
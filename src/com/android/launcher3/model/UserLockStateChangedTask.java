@@ -118,6 +118,8 @@ public class UserLockStateChangedTask extends BaseModelUpdateTask {
         if (isUserUnlocked) {
             dataModel.updateDeepShortcutCounts(
                     null, mUser, deepShortcutManager.queryForAllShortcuts(mUser));
+        } else {
+            deepShortcutManager.invalidateShortcutCache(null, mUser);
         }
         bindDeepShortcuts(dataModel);
     }
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.UserHandle;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.android.launcher3.InvariantDeviceProfile;
+import com.android.launcher3.ItemInfo;
+import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.WorkspaceItemInfo;
+import com.android.launcher3.compat.UserManagerCompat;
+import com.android.launcher3.icons.BitmapRenderer;
+import com.android.launcher3.icons.GraphicsUtils;
+import com.android.launcher3.util.GridOccupancy;
+import com.android.launcher3.util.IntArray;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A compact copy of the icons on the first screen and the hotseat, which is bound on a cold start
+ * while {@link LoaderTask} is still loading the workspace. The snapshot is replaced by the real
+ * items as soon as the workspace is bound.
+ */
+public class WorkspaceSnapshot {
+
+    private static final String TAG = "WorkspaceSnapshot";
+
+    private static final String FILE_NAME = "workspace_snapshot";
+    private static final int VERSION = 2;
+
+    // Hash of the items in the last saved snapshot, only accessed on the worker thread.
+    private static int sSavedItemsHash;
+
+    public final int screenId;
+    public final ArrayList<ItemInfo> items;
+
+    private WorkspaceSnapshot(int screenId, ArrayList<ItemInfo> items) {
+        this.screenId = screenId;
+        this.items = items;
+    }
+
+    public IntArray getScreenIds() {
+        return IntArray.wrap(screenId);
+    }
+
+    private static AtomicFile getFile(Context context) {
+        return new AtomicFile(new File(context.getCacheDir(), FILE_NAME));
+    }
+
+    /**
+     * Saves the items on the first screen of {@param dataModel}, unless they are unchanged since
+     * the last save. Must be called on the worker thread, as compressing the icons is slow.
+     */
+    public static void save(Context context, BgDataModel dataModel) {
+        ArrayList<ItemInfo> firstScreenItems = new ArrayList<>();
+        ArrayList<ItemInfo> allItems = new ArrayList<>();
+        IntArray screenIds;
+        synchronized (dataModel) {
+            allItems.addAll(dataModel.workspaceItems);
+            screenIds = dataModel.collectWorkspaceScreens();
+        }
+        if (screenIds.isEmpty()) {
+            return;
+        }
+        int firstScreen = screenIds.get(0);
+        BaseLoaderResults.filterCurrentWorkspaceItems(firstScreen, allItems, firstScreenItems,
+                new ArrayList<>() /* otherScreenItems are ignored */);
+        save(context, firstScreen, firstScreenItems);
+    }
+
+    /**
+     * Saves the workspace items and hotseat items among {@param firstScreenItems}. Only items
+     * which can be drawn without any additional state (shortcuts with a full resolution icon) are
+     * saved.
+     */
+    private static void save(Context context, int screenId, List<ItemInfo> firstScreenItems) {
+        InvariantDeviceProfile idp = InvariantDeviceProfile.INSTANCE.get(context);
+        UserManagerCompat userManager = UserManagerCompat.getInstance(context);
+
+        // Colliding items are removed from the database when bound, so make sure the snapshot
+        // never contains any, as the snapshot items share their ids with the actual items.
+        GridOccupancy occupancy = new GridOccupancy(idp.numColumns, idp.numRows);
+        ArrayList<WorkspaceItemInfo> items = new ArrayList<>();
+        int itemsHash = screenId;
+        for (ItemInfo info : firstScreenItems) {
+            if ((info.container == Favorites.CONTAINER_DESKTOP
+                    || info.container == Favorites.CONTAINER_HOTSEAT)
+                    && info instanceof WorkspaceItemInfo) {
+                WorkspaceItemInfo si = (WorkspaceItemInfo) info;
+                if (si.intent == null || si.iconBitmap == null || si.usingLowResIcon()
+                        || si.hasPromiseIconUi()) {
+                    continue;
+                }
+                if (si.container == Favorites.CONTAINER_DESKTOP) {
+                    if (!occupancy.isRegionVacant(si.cellX, si.cellY, si.spanX, si.spanY)) {
+                        continue;
+                    }
+                    occupancy.markCells(si, true);
+                }
+                items.add(si);
+                itemsHash = 31 * itemsHash + getItemHash(si);
+            }
+        }
+        if (itemsHash == sSavedItemsHash) {
+            // The items on the first screen did not change
+            return;
+        }
+
+        AtomicFile file = getFile(context);
+        FileOutputStream fos = null;
+        try {
+            fos = file.startWrite();
+            DataOutputStream out = new DataOutputStream(fos);
+            out.writeInt(VERSION);
+            out.writeInt(idp.numRows);
+            out.writeInt(idp.numColumns);
+            out.writeInt(idp.numHotseatIcons);
+            out.writeInt(idp.iconBitmapSize);
+            out.writeUTF(idp.iconShapePath);
+            out.writeUTF(getLocales(context));
+            out.writeInt(screenId);
+            out.writeInt(items.size());
+            for (WorkspaceItemInfo info : items) {
+                out.writeInt(info.id);
+                out.writeInt(info.itemType);
+                out.writeInt(info.container);
+                out.writeInt(info.screenId);
+                out.writeInt(info.cellX);
+                out.writeInt(info.cellY);
+                out.writeInt(info.spanX);
+                out.writeInt(info.spanY);
+                out.writeLong(userManager.getSerialNumberForUser(info.user));
+                out.writeUTF(info.title == null ? "" : info.title.toString());
+                out.writeUTF(info.intent.toUri(0));
+                out.writeInt(info.runtimeStatusFlags);
+                out.writeInt(info.iconColor);
+                byte[] icon = GraphicsUtils.flattenBitmap(info.iconBitmap);
+                if (icon == null) {
+                    out.writeInt(0);
+                } else {
+                    out.writeInt(icon.length);
+                    out.write(icon);
+                }
+            }
+            out.flush();
+            file.finishWrite(fos);
+            sSavedItemsHash = itemsHash;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to save workspace snapshot", e);
+            if (fos != null) {
+                file.failWrite(fos);
+            }
+        }
+    }
+
+    /**
+     * Returns a hash of the properties of {@param info} which are saved in the snapshot. The icon
+     * is only compared by identity, as icon updates always create a new bitmap.
+     */
+    private static int getItemHash(WorkspaceItemInfo info) {
+        return Objects.hash(info.id, info.itemType, info.container, info.screenId, info.cellX,
+                info.cellY, info.spanX, info.spanY, info.user, info.title, info.intent.toUri(0),
+                info.runtimeStatusFlags, info.iconColor, System.identityHashCode(info.iconBitmap));
+    }
+
+    private static String getLocales(Context context) {
+        return context.getResources().getConfiguration().getLocales().toLanguageTags();
+    }
+
+    /**
+     * Loads the last saved snapshot, or returns null if there is no snapshot matching the current
+     * grid, icon size, icon shape and locale.
+     */
+    public static WorkspaceSnapshot load(Context context) {
+        InvariantDeviceProfile idp = InvariantDeviceProfile.INSTANCE.get(context);
+        UserManagerCompat userManager = UserManagerCompat.getInstance(context);
+
+        // The icons are only drawn, similar to the icons loaded from the icon cache
+        BitmapFactory.Options decodeOptions = null;
+        if (BitmapRenderer.USE_HARDWARE_BITMAP && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            decodeOptions = new BitmapFactory.Options();
+            decodeOptions.inPreferredConfig = Bitmap.Config.HARDWARE;
+        }
+
+        try (DataInputStream in = new DataInputStream(getFile(context).openRead())) {
+            if (in.readInt() != VERSION
+                    || in.readInt() != idp.numRows
+                    || in.readInt() != idp.numColumns
+                    || in.readInt() != idp.numHotseatIcons
+                    || in.readInt() != idp.iconBitmapSize
+                    || !in.readUTF().equals(idp.iconShapePath)
+                    || !in.readUTF().equals(getLocales(context))) {
+                return null;
+            }
+            int screenId = in.readInt();
+            int count = in.readInt();
+            ArrayList<ItemInfo> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                WorkspaceItemInfo info = new WorkspaceItemInfo();
+                info.id = in.readInt();
+                info.itemType = in.readInt();
+                info.container = in.readInt();
+                info.screenId = in.readInt();
+                info.cellX = in.readInt();
+                info.cellY = in.readInt();
+                info.spanX = in.readInt();
+                info.spanY = in.readInt();
+                UserHandle user = userManager.getUserForSerialNumber(in.readLong());
+                info.title = in.readUTF();
+                info.contentDescription = info.title;
+                String intent = in.readUTF();
+                info.runtimeStatusFlags = in.readInt();
+                info.iconColor = in.readInt();
+                byte[] icon = new byte[in.readInt()];
+                in.readFully(icon);
+
+                Bitmap bitmap = icon.length == 0 ? null
+                        : BitmapFactory.decodeByteArray(icon, 0, icon.length, decodeOptions);
+                if (user == null || bitmap == null) {
+                    // The user was removed, or the icon is corrupt. Skip the item, the loader
+                    // will bind it if it is still valid.
+                    continue;
+                }
+                info.user = user;
+                info.intent = Intent.parseUri(intent, 0);
+                info.iconBitmap = bitmap;
+                items.add(info);
+            }
+            return new WorkspaceSnapshot(screenId, items);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException | URISyntaxException e) {
+            Log.e(TAG, "Unable to read workspace snapshot", e);
+            return null;
+        }
+    }
+}
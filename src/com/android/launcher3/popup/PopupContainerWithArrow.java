@@ -515,7 +515,7 @@ public class PopupContainerWithArrow extends ArrowPopup implements DragSource,
         }
         ItemInfo originalInfo = (ItemInfo) mOriginalIcon.getTag();
         DotInfo dotInfo = updatedDots.get(PackageUserKey.fromItemInfo(originalInfo));
-        if (dotInfo == null || dotInfo.getNotificationKeys().size() == 0) {
+        if (dotInfo == null || dotInfo.getNotificationKeyCount() == 0) {
             // No more notifications, remove the notification views and expand all shortcuts.
             mNotificationItemView.removeAllViews();
             mNotificationItemView = null;
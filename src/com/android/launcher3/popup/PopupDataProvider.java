@@ -19,6 +19,7 @@ package com.android.launcher3.popup;
 import android.content.ComponentName;
 import android.service.notification.StatusBarNotification;
 import android.util.Log;
+import android.view.Choreographer;
 
 import com.android.launcher3.ItemInfo;
 import com.android.launcher3.Launcher;
@@ -34,6 +35,7 @@ import com.android.launcher3.widget.WidgetListRowEntry;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -55,6 +57,13 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
     private HashMap<ComponentKey, Integer> mDeepShortcutMap = new HashMap<>();
     /** Maps packages to their DotInfo's . */
     private Map<PackageUserKey, DotInfo> mPackageUserToDotInfos = new HashMap<>();
+    /** Reverse index from notification keys to the package they are counted against. */
+    private final Map<String, PackageUserKey> mNotificationKeyToPackageUser = new HashMap<>();
+    /** Dots which changed since the last frame and have not been dispatched yet. */
+    private HashSet<PackageUserKey> mPendingDotUpdates = new HashSet<>();
+    private boolean mDotUpdateScheduled;
+    private final Choreographer.FrameCallback mDispatchDotUpdatesCallback =
+            frameTimeNanos -> dispatchPendingDotUpdates();
     /** Maps packages to their Widgets */
     private ArrayList<WidgetListRowEntry> mAllWidgets = new ArrayList<>();
 
@@ -64,89 +73,111 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
         mLauncher = launcher;
     }
 
-    private void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
-        mLauncher.updateNotificationDots(updatedDots);
-        mChangeListener.onNotificationDotsUpdated(updatedDots);
+    /**
+     * Marks the dot for the given key as changed. All changes received within a frame are
+     * dispatched together on the next frame, so that a burst of notifications from the same
+     * (or different) apps only walks the workspace and all apps once.
+     */
+    private void markDotChanged(PackageUserKey packageUserKey) {
+        mPendingDotUpdates.add(packageUserKey);
+        if (!mDotUpdateScheduled) {
+            mDotUpdateScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mDispatchDotUpdatesCallback);
+        }
+    }
+
+    private void dispatchPendingDotUpdates() {
+        mDotUpdateScheduled = false;
+        if (mPendingDotUpdates.isEmpty()) {
+            return;
+        }
+        HashSet<PackageUserKey> updatedDots = mPendingDotUpdates;
+        mPendingDotUpdates = new HashSet<>();
+        mLauncher.updateNotificationDots(updatedDots::contains);
+        mChangeListener.onNotificationDotsUpdated(updatedDots::contains);
+        mChangeListener.trimNotifications(mPackageUserToDotInfos);
+    }
+
+    private boolean addNotificationKey(PackageUserKey packageUserKey,
+            NotificationKeyData notificationKey) {
+        DotInfo dotInfo = mPackageUserToDotInfos.get(packageUserKey);
+        if (dotInfo == null) {
+            dotInfo = new DotInfo();
+            mPackageUserToDotInfos.put(packageUserKey, dotInfo);
+        }
+        mNotificationKeyToPackageUser.put(notificationKey.notificationKey, packageUserKey);
+        return dotInfo.addOrUpdateNotificationKey(notificationKey);
+    }
+
+    private boolean removeNotificationKey(PackageUserKey packageUserKey,
+            NotificationKeyData notificationKey) {
+        DotInfo dotInfo = mPackageUserToDotInfos.get(packageUserKey);
+        if (dotInfo == null || !dotInfo.removeNotificationKey(notificationKey)) {
+            return false;
+        }
+        mNotificationKeyToPackageUser.remove(notificationKey.notificationKey);
+        if (dotInfo.getNotificationKeyCount() == 0) {
+            mPackageUserToDotInfos.remove(packageUserKey);
+        }
+        return true;
     }
 
     @Override
     public void onNotificationPosted(PackageUserKey postedPackageUserKey,
             NotificationKeyData notificationKey, boolean shouldBeFilteredOut) {
-        DotInfo dotInfo = mPackageUserToDotInfos.get(postedPackageUserKey);
-        boolean dotShouldBeRefreshed;
-        if (dotInfo == null) {
-            if (!shouldBeFilteredOut) {
-                DotInfo newDotInfo = new DotInfo();
-                newDotInfo.addOrUpdateNotificationKey(notificationKey);
-                mPackageUserToDotInfos.put(postedPackageUserKey, newDotInfo);
-                dotShouldBeRefreshed = true;
-            } else {
-                dotShouldBeRefreshed = false;
-            }
-        } else {
-            dotShouldBeRefreshed = shouldBeFilteredOut
-                    ? dotInfo.removeNotificationKey(notificationKey)
-                    : dotInfo.addOrUpdateNotificationKey(notificationKey);
-            if (dotInfo.getNotificationKeys().size() == 0) {
-                mPackageUserToDotInfos.remove(postedPackageUserKey);
-            }
-        }
+        boolean dotShouldBeRefreshed = shouldBeFilteredOut
+                ? removeNotificationKey(postedPackageUserKey, notificationKey)
+                : addNotificationKey(postedPackageUserKey, notificationKey);
         if (dotShouldBeRefreshed) {
-            updateNotificationDots(t -> postedPackageUserKey.equals(t));
+            markDotChanged(postedPackageUserKey);
         }
     }
 
     @Override
     public void onNotificationRemoved(PackageUserKey removedPackageUserKey,
             NotificationKeyData notificationKey) {
-        DotInfo oldDotInfo = mPackageUserToDotInfos.get(removedPackageUserKey);
-        if (oldDotInfo != null && oldDotInfo.removeNotificationKey(notificationKey)) {
-            if (oldDotInfo.getNotificationKeys().size() == 0) {
-                mPackageUserToDotInfos.remove(removedPackageUserKey);
-            }
-            updateNotificationDots(t -> removedPackageUserKey.equals(t));
-            trimNotifications(mPackageUserToDotInfos);
+        if (removeNotificationKey(removedPackageUserKey, notificationKey)) {
+            markDotChanged(removedPackageUserKey);
         }
     }
 
     @Override
     public void onNotificationFullRefresh(List<StatusBarNotification> activeNotifications) {
         if (activeNotifications == null) return;
-        // This will contain the PackageUserKeys which have updated dots.
-        HashMap<PackageUserKey, DotInfo> updatedDots = new HashMap<>(mPackageUserToDotInfos);
-        mPackageUserToDotInfos.clear();
+
+        // Apply the active notifications as deltas against the current index, so that only the
+        // dots which actually appeared, disappeared or changed count are reported.
+        HashSet<String> activeKeys = new HashSet<>(activeNotifications.size());
         for (StatusBarNotification notification : activeNotifications) {
             PackageUserKey packageUserKey = PackageUserKey.fromNotification(notification);
-            DotInfo dotInfo = mPackageUserToDotInfos.get(packageUserKey);
-            if (dotInfo == null) {
-                dotInfo = new DotInfo();
-                mPackageUserToDotInfos.put(packageUserKey, dotInfo);
+            NotificationKeyData notificationKey =
+                    NotificationKeyData.fromNotification(notification);
+            activeKeys.add(notificationKey.notificationKey);
+            if (addNotificationKey(packageUserKey, notificationKey)) {
+                markDotChanged(packageUserKey);
             }
-            dotInfo.addOrUpdateNotificationKey(NotificationKeyData.fromNotification(notification));
         }
 
-        // Add and remove from updatedDots so it contains the PackageUserKeys of updated dots.
-        for (PackageUserKey packageUserKey : mPackageUserToDotInfos.keySet()) {
-            DotInfo prevDot = updatedDots.get(packageUserKey);
-            DotInfo newDot = mPackageUserToDotInfos.get(packageUserKey);
-            if (prevDot == null) {
-                updatedDots.put(packageUserKey, newDot);
-            } else {
-                // No need to update the dot if it already existed (no visual change).
-                // Note that if the dot was removed entirely, we wouldn't reach this point because
-                // this loop only includes active notifications added above.
-                updatedDots.remove(packageUserKey);
+        // Remove all the notifications which are no longer active, using the reverse index so
+        // that we don't need to walk every dot.
+        Iterator<Map.Entry<String, PackageUserKey>> iterator =
+                mNotificationKeyToPackageUser.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, PackageUserKey> entry = iterator.next();
+            if (activeKeys.contains(entry.getKey())) {
+                continue;
+            }
+            iterator.remove();
+            PackageUserKey packageUserKey = entry.getValue();
+            DotInfo dotInfo = mPackageUserToDotInfos.get(packageUserKey);
+            if (dotInfo != null
+                    && dotInfo.removeNotificationKey(dotInfo.getNotificationKey(entry.getKey()))) {
+                if (dotInfo.getNotificationKeyCount() == 0) {
+                    mPackageUserToDotInfos.remove(packageUserKey);
+                }
+                markDotChanged(packageUserKey);
             }
         }
-
-        if (!updatedDots.isEmpty()) {
-            updateNotificationDots(updatedDots::containsKey);
-        }
-        trimNotifications(updatedDots);
-    }
-
-    private void trimNotifications(Map<PackageUserKey, DotInfo> updatedDots) {
-        mChangeListener.trimNotifications(updatedDots);
     }
 
     public void setDeepShortcutMap(HashMap<ComponentKey, Integer> deepShortcutMapCopy) {
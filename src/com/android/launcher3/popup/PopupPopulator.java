@@ -31,6 +31,7 @@ import com.android.launcher3.notification.NotificationKeyData;
 import com.android.launcher3.shortcuts.DeepShortcutManager;
 import com.android.launcher3.shortcuts.DeepShortcutView;
 import com.android.launcher3.util.PackageUserKey;
+import com.android.launcher3.util.TraceHelper;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -51,6 +52,8 @@ public class PopupPopulator {
     @VisibleForTesting static final int NUM_DYNAMIC = 2;
     public static final int MAX_SHORTCUTS_IF_NOTIFICATIONS = 2;
 
+    private static final String TRACE_TAG = "PopupPopulator";
+
     /**
      * Sorts shortcuts in rank order, with manifest shortcuts coming before dynamic shortcuts.
      */
@@ -129,6 +132,7 @@ public class PopupPopulator {
         final ComponentName activity = originalInfo.getTargetComponent();
         final UserHandle user = originalInfo.user;
         return () -> {
+            TraceHelper.beginSection(TRACE_TAG);
             if (!notificationKeys.isEmpty()) {
                 List<StatusBarNotification> notifications = launcher.getPopupDataProvider()
                         .getStatusBarNotificationsForKeys(notificationKeys);
@@ -138,10 +142,12 @@ public class PopupPopulator {
                     infos.add(new NotificationInfo(launcher, notification));
                 }
                 uiHandler.post(() -> container.applyNotificationInfos(infos));
+                TraceHelper.partitionSection(TRACE_TAG, "notifications loaded");
             }
 
             List<ShortcutInfo> shortcuts = DeepShortcutManager.getInstance(launcher)
                     .queryForShortcutsContainer(activity, user);
+            TraceHelper.partitionSection(TRACE_TAG, "shortcuts queried");
             String shortcutIdToDeDupe = notificationKeys.isEmpty() ? null
                     : notificationKeys.get(0).shortcutId;
             shortcuts = PopupPopulator.sortAndFilterShortcuts(shortcuts, shortcutIdToDeDupe);
@@ -158,6 +164,8 @@ public class PopupPopulator {
                 uiHandler.post(() -> view.applyShortcutInfo(si, shortcut, container));
             }
 
+            TraceHelper.endSection(TRACE_TAG, "shortcut icons loaded");
+
             // This ensures that mLauncher.getWidgetsForPackageUser()
             // doesn't return null (it puts all the widgets in memory).
             uiHandler.post(() -> launcher.refreshAndBindWidgetsForPackageUser(
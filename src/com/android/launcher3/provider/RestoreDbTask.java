@@ -21,19 +21,20 @@ import static com.android.launcher3.Utilities.getStringFromIntArray;
 import static com.android.launcher3.provider.LauncherDbUtils.dropTable;
 
 import android.app.backup.BackupManager;
-import android.content.ContentValues;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.util.LongSparseArray;
-import android.util.SparseLongArray;
 
 import androidx.annotation.NonNull;
 
 import com.android.launcher3.AppWidgetsRestoredReceiver;
 import com.android.launcher3.LauncherAppWidgetInfo;
+import com.android.launcher3.LauncherModel;
 import com.android.launcher3.LauncherProvider.DatabaseHelper;
 import com.android.launcher3.LauncherSettings.Favorites;
 import com.android.launcher3.WorkspaceItemInfo;
@@ -43,6 +44,7 @@ import com.android.launcher3.provider.LauncherDbUtils.SQLiteTransaction;
 import com.android.launcher3.util.LogConfig;
 
 import java.io.InvalidObjectException;
+import java.io.PrintWriter;
 
 /**
  * Utility class to update DB schema after it has been restored.
@@ -61,14 +63,34 @@ public class RestoreDbTask {
     private static final String APPWIDGET_OLD_IDS = "appwidget_old_ids";
     private static final String APPWIDGET_IDS = "appwidget_ids";
 
+    /**
+     * Profile id assigned to the items of profiles which were not restored. These items are
+     * never loaded and are deleted once the launcher is idle, see {@link #removeObsoleteItems}.
+     */
+    private static final long OBSOLETE_PROFILE_ID = -1;
+
+    // Duration of the phases of the last restore, for dump.
+    private static volatile String sRestoreTimings;
+
     public static boolean performRestore(Context context, DatabaseHelper helper,
             BackupManager backupManager) {
+        long startTime = SystemClock.uptimeMillis();
         SQLiteDatabase db = helper.getWritableDatabase();
         try (SQLiteTransaction t = new SQLiteTransaction(db)) {
             RestoreDbTask task = new RestoreDbTask();
             task.sanitizeDB(helper, db, backupManager);
+            long sanitizeTime = SystemClock.uptimeMillis();
             task.restoreAppWidgetIdsIfExists(context);
+            long widgetsTime = SystemClock.uptimeMillis();
             t.commit();
+            long endTime = SystemClock.uptimeMillis();
+
+            sRestoreTimings = "sanitize=" + (sanitizeTime - startTime)
+                    + "ms, widgetIds=" + (widgetsTime - sanitizeTime)
+                    + "ms, commit=" + (endTime - widgetsTime)
+                    + "ms, total=" + (endTime - startTime) + "ms";
+            FileLog.d(TAG, "Restore completed: " + sRestoreTimings);
+            scheduleObsoleteItemsRemoval(context, helper);
             return true;
         } catch (Exception e) {
             FileLog.e(TAG, "Failed to verify db", e);
@@ -77,15 +99,16 @@ public class RestoreDbTask {
     }
 
     /**
-     * Makes the following changes in the provider DB.
-     *   1. Removes all entries belonging to any profiles that were not restored.
+     * Makes the following changes in the provider DB, in a single pass over the favorites table.
+     *   1. Moves all entries belonging to any profiles that were not restored to
+     *      {@link #OBSOLETE_PROFILE_ID}. They are deleted later, when the launcher is idle.
      *   2. Marks all entries as restored. The flags are updated during first load or as
      *      the restored apps get installed.
      *   3. If the user serial for any restored profile is different than that of the previous
      *      device, update the entries to the new profile id.
      */
-    private void sanitizeDB(DatabaseHelper helper, SQLiteDatabase db, BackupManager backupManager)
-            throws Exception {
+    protected void sanitizeDB(DatabaseHelper helper, SQLiteDatabase db,
+            BackupManager backupManager) throws Exception {
         // Primary user ids
         long myProfileId = helper.getDefaultUserSerial();
         long oldProfileId = getDefaultProfileId(db);
@@ -104,62 +127,37 @@ public class RestoreDbTask {
             }
         }
 
-        // Delete all entries which do not belong to any restored profile(s).
-        int numProfiles = profileMapping.size();
-        String[] profileIds = new String[numProfiles];
-        profileIds[0] = Long.toString(oldProfileId);
-        StringBuilder whereClause = new StringBuilder("profileId != ?");
-        for (int i = profileMapping.size() - 1; i >= 1; --i) {
-            whereClause.append(" AND profileId != ?");
-            profileIds[i] = Long.toString(profileMapping.keyAt(i));
-        }
-        int itemsDeleted = db.delete(Favorites.TABLE_NAME, whereClause.toString(), profileIds);
-        if (itemsDeleted > 0) {
-            FileLog.d(TAG, itemsDeleted + " items from unrestored user(s) were deleted");
-        }
-
-        // Mark all items as restored.
-        boolean keepAllIcons = Utilities.isPropertyEnabled(LogConfig.KEEP_ALL_ICONS);
-        ContentValues values = new ContentValues();
-        values.put(Favorites.RESTORED, WorkspaceItemInfo.FLAG_RESTORED_ICON
-                | (keepAllIcons ? WorkspaceItemInfo.FLAG_RESTORE_STARTED : 0));
-        db.update(Favorites.TABLE_NAME, values, null, null);
-
-        // Mark widgets with appropriate restore flag.
-        values.put(Favorites.RESTORED,  LauncherAppWidgetInfo.FLAG_ID_NOT_VALID |
-                LauncherAppWidgetInfo.FLAG_PROVIDER_NOT_READY |
-                LauncherAppWidgetInfo.FLAG_UI_NOT_READY |
-                (keepAllIcons ? LauncherAppWidgetInfo.FLAG_RESTORE_STARTED : 0));
-        db.update(Favorites.TABLE_NAME, values, "itemType = ?",
-                new String[]{Integer.toString(Favorites.ITEM_TYPE_APPWIDGET)});
-
-        // Migrate ids. To avoid any overlap, we initially move conflicting ids to a temp location.
-        // Using Long.MIN_VALUE since profile ids can not be negative, so there will be no overlap.
-        final long tempLocationOffset = Long.MIN_VALUE;
-        SparseLongArray tempMigratedIds = new SparseLongArray(profileMapping.size());
-        int numTempMigrations = 0;
-        for (int i = profileMapping.size() - 1; i >= 0; --i) {
+        // All ids are mapped in the same statement, so there is no need to move conflicting ids
+        // to a temporary location.
+        StringBuilder profileIdExpr = new StringBuilder("CASE profileId");
+        for (int i = 0; i < profileMapping.size(); i++) {
             long oldId = profileMapping.keyAt(i);
             long newId = profileMapping.valueAt(i);
-
             if (oldId != newId) {
-                if (profileMapping.indexOfKey(newId) >= 0) {
-                    tempMigratedIds.put(numTempMigrations, newId);
-                    numTempMigrations++;
-                    newId = tempLocationOffset + newId;
-                }
-                migrateProfileId(db, oldId, newId);
+                FileLog.d(TAG, "Changing profile user id from " + oldId + " to " + newId);
             }
+            profileIdExpr.append(" WHEN ").append(oldId).append(" THEN ").append(newId);
         }
+        profileIdExpr.append(" ELSE ").append(OBSOLETE_PROFILE_ID).append(" END");
 
-        // Migrate ids from their temporary id to their actual final id.
-        for (int i = tempMigratedIds.size() - 1; i >= 0; --i) {
-            long newId = tempMigratedIds.valueAt(i);
-            migrateProfileId(db, tempLocationOffset + newId, newId);
-        }
+        // Mark all items as restored, and widgets with the appropriate restore flag.
+        boolean keepAllIcons = Utilities.isPropertyEnabled(LogConfig.KEEP_ALL_ICONS);
+        int itemFlags = WorkspaceItemInfo.FLAG_RESTORED_ICON
+                | (keepAllIcons ? WorkspaceItemInfo.FLAG_RESTORE_STARTED : 0);
+        int widgetFlags = LauncherAppWidgetInfo.FLAG_ID_NOT_VALID
+                | LauncherAppWidgetInfo.FLAG_PROVIDER_NOT_READY
+                | LauncherAppWidgetInfo.FLAG_UI_NOT_READY
+                | (keepAllIcons ? LauncherAppWidgetInfo.FLAG_RESTORE_STARTED : 0);
+        String restoredExpr = "CASE WHEN itemType = " + Favorites.ITEM_TYPE_APPWIDGET
+                + " THEN " + widgetFlags + " ELSE " + itemFlags + " END";
 
         if (myProfileId != oldProfileId) {
-            changeDefaultColumn(db, myProfileId);
+            // Changing the default value of the column requires recreating the table, so the rows
+            // are rewritten while being copied to the new table.
+            recreateTable(db, myProfileId, profileIdExpr.toString(), restoredExpr);
+        } else {
+            db.execSQL("UPDATE favorites SET profileId = " + profileIdExpr
+                    + ", restored = " + restoredExpr + ";");
         }
     }
 
@@ -168,30 +166,97 @@ public class RestoreDbTask {
      */
     protected void migrateProfileId(SQLiteDatabase db, long oldProfileId, long newProfileId) {
         FileLog.d(TAG, "Changing profile user id from " + oldProfileId + " to " + newProfileId);
-        // Update existing entries.
-        ContentValues values = new ContentValues();
-        values.put(Favorites.PROFILE_ID, newProfileId);
-        db.update(Favorites.TABLE_NAME, values, "profileId = ?",
-                new String[]{Long.toString(oldProfileId)});
-
-        // Change default value of the column.
-        db.execSQL("ALTER TABLE favorites RENAME TO favorites_old;");
-        Favorites.addTableToDb(db, newProfileId, false);
-        db.execSQL("INSERT INTO favorites SELECT * FROM favorites_old;");
-        dropTable(db, "favorites_old");
+        recreateTable(db, newProfileId, "CASE profileId WHEN " + oldProfileId
+                + " THEN " + newProfileId + " ELSE profileId END", Favorites.RESTORED);
     }
 
-
     /**
      * Changes the default value for the column.
      */
     protected void changeDefaultColumn(SQLiteDatabase db, long newProfileId) {
+        recreateTable(db, newProfileId, Favorites.PROFILE_ID, Favorites.RESTORED);
+    }
+
+    /**
+     * Recreates the favorites table with {@param newProfileId} as the default profile id, copying
+     * all the rows with the profile id and restored columns replaced by the given SQL expressions.
+     */
+    private void recreateTable(SQLiteDatabase db, long newProfileId, String profileIdExpr,
+            String restoredExpr) {
         db.execSQL("ALTER TABLE favorites RENAME TO favorites_old;");
         Favorites.addTableToDb(db, newProfileId, false);
-        db.execSQL("INSERT INTO favorites SELECT * FROM favorites_old;");
+
+        StringBuilder columns = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        try (Cursor c = db.rawQuery("PRAGMA table_info (favorites_old)", null)) {
+            int nameIndex = c.getColumnIndex(INFO_COLUMN_NAME);
+            while (c.moveToNext()) {
+                String name = c.getString(nameIndex);
+                if (columns.length() > 0) {
+                    columns.append(',');
+                    values.append(',');
+                }
+                columns.append(name);
+                if (Favorites.PROFILE_ID.equals(name)) {
+                    values.append(profileIdExpr);
+                } else if (Favorites.RESTORED.equals(name)) {
+                    values.append(restoredExpr);
+                } else {
+                    values.append(name);
+                }
+            }
+        }
+        db.execSQL("INSERT INTO favorites (" + columns + ") SELECT " + values
+                + " FROM favorites_old;");
         dropTable(db, "favorites_old");
     }
 
+    /**
+     * Removes the items of profiles which were not restored, and any widgets which are not
+     * present in the restored DB, once the loader thread is idle. The loader skips the items of
+     * unknown profiles, so this cleanup does not need to block the first load.
+     */
+    private static void scheduleObsoleteItemsRemoval(Context context, DatabaseHelper helper) {
+        LauncherModel.getWorkerLooper().getQueue().addIdleHandler(() -> {
+            removeObsoleteItems(context, helper);
+            return false;
+        });
+    }
+
+    private static void removeObsoleteItems(Context context, DatabaseHelper helper) {
+        long startTime = SystemClock.uptimeMillis();
+        // Delete through the provider, so that its listeners are notified of the change.
+        int itemsDeleted = context.getContentResolver().delete(Favorites.CONTENT_URI,
+                "profileId = ?", new String[] {Long.toString(OBSOLETE_PROFILE_ID)});
+        if (itemsDeleted > 0) {
+            FileLog.d(TAG, itemsDeleted + " items from unrestored user(s) were deleted");
+        }
+
+        // Until the host restored broadcast is handled, the host already has the new ids of the
+        // restored widgets while the DB still has the old ones, so they would look like ghosts.
+        SQLiteDatabase db = helper.getWritableDatabase();
+        if (hasWidgetsPendingIdRestore(db)) {
+            FileLog.d(TAG, "Skipping ghost widget removal, widget ids not restored yet");
+        } else {
+            helper.removeGhostWidgets(db);
+        }
+
+        long cleanupTime = SystemClock.uptimeMillis() - startTime;
+        sRestoreTimings += ", deferred cleanup=" + cleanupTime + "ms";
+        FileLog.d(TAG, "Deferred restore cleanup took " + cleanupTime + "ms");
+    }
+
+    /**
+     * Returns true if any widget in the provided db still has the id it had on the previous
+     * device.
+     */
+    private static boolean hasWidgetsPendingIdRestore(SQLiteDatabase db) {
+        return DatabaseUtils.queryNumEntries(db, Favorites.TABLE_NAME,
+                "itemType = ? AND (restored & ?) != 0", new String[] {
+                        Integer.toString(Favorites.ITEM_TYPE_APPWIDGET),
+                        Integer.toString(LauncherAppWidgetInfo.FLAG_ID_NOT_VALID)}) > 0;
+    }
+
     /**
      * Returns a list of the managed profile id(s) used in the favorites table of the provided db.
      */
@@ -233,6 +298,12 @@ public class RestoreDbTask {
         }
     }
 
+    public static void dump(String prefix, PrintWriter writer) {
+        if (sRestoreTimings != null) {
+            writer.println(prefix + "Last restore: " + sRestoreTimings);
+        }
+    }
+
     public static boolean isPending(Context context) {
         return Utilities.getPrefs(context).getBoolean(RESTORE_TASK_PENDING, false);
     }
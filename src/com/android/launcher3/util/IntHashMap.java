@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * A map from int keys to objects, using open addressing with linear probing. Lookups are O(1)
+ * without boxing, unlike {@link IntSparseArrayMap} which does a binary search.
+ *
+ * The entries are stored in dense arrays which can be accessed by index, similar to
+ * {@link android.util.SparseArray}, but the entries are not sorted by key. Removing an entry
+ * moves the last entry in its place.
+ */
+public class IntHashMap<E> implements Iterable<E> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // Hash table containing (index + 1) of the entry in the dense arrays, or 0 for empty slots.
+    private int[] mSlots;
+    private int mMask;
+
+    private int[] mKeys;
+    private Object[] mValues;
+    private int mSize;
+
+    public IntHashMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    public IntHashMap(int initialCapacity) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < initialCapacity * 4) {
+            capacity <<= 1;
+        }
+        mSlots = new int[capacity];
+        mMask = capacity - 1;
+        mKeys = new int[capacity];
+        mValues = new Object[capacity];
+    }
+
+    private int slotOf(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mMask;
+    }
+
+    /**
+     * Returns the slot containing {@param key}, or the empty slot where it should be added.
+     */
+    private int findSlot(int key) {
+        int slot = slotOf(key);
+        while (mSlots[slot] != 0 && mKeys[mSlots[slot] - 1] != key) {
+            slot = (slot + 1) & mMask;
+        }
+        return slot;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return mSlots[findSlot(key)] != 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int key) {
+        int index = mSlots[findSlot(key)];
+        return index == 0 ? null : (E) mValues[index - 1];
+    }
+
+    public void put(int key, E value) {
+        int slot = findSlot(key);
+        if (mSlots[slot] != 0) {
+            mValues[mSlots[slot] - 1] = value;
+            return;
+        }
+        if ((mSize + 1) * 4 > mSlots.length * 3) {
+            resize(mSlots.length << 1);
+            slot = findSlot(key);
+        }
+        mKeys[mSize] = key;
+        mValues[mSize] = value;
+        mSize++;
+        mSlots[slot] = mSize;
+    }
+
+    public void remove(int key) {
+        int slot = findSlot(key);
+        if (mSlots[slot] == 0) {
+            return;
+        }
+        int index = mSlots[slot] - 1;
+        removeSlot(slot);
+
+        // Move the last entry in the place of the removed entry
+        int last = mSize - 1;
+        if (index != last) {
+            int lastKey = mKeys[last];
+            mSlots[findSlot(lastKey)] = index + 1;
+            mKeys[index] = lastKey;
+            mValues[index] = mValues[last];
+        }
+        mValues[last] = null;
+        mSize = last;
+    }
+
+    /**
+     * Clears {@param slot}, shifting back the following entries of the same probe sequence.
+     */
+    private void removeSlot(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mMask;
+            if (mSlots[next] == 0) {
+                break;
+            }
+            int ideal = slotOf(mKeys[mSlots[next] - 1]);
+            // The entry can move to the hole only if its ideal slot is not in (hole, next]
+            boolean canMove = hole <= next
+                    ? (ideal <= hole || ideal > next)
+                    : (ideal <= hole && ideal > next);
+            if (canMove) {
+                mSlots[hole] = mSlots[next];
+                hole = next;
+            }
+        }
+        mSlots[hole] = 0;
+    }
+
+    private void resize(int capacity) {
+        mSlots = new int[capacity];
+        mMask = capacity - 1;
+        mKeys = Arrays.copyOf(mKeys, capacity);
+        mValues = Arrays.copyOf(mValues, capacity);
+        for (int i = 0; i < mSize; i++) {
+            mSlots[findSlot(mKeys[i])] = i + 1;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(mSlots, 0);
+        Arrays.fill(mValues, 0, mSize, null);
+        mSize = 0;
+    }
+
+    public int keyAt(int index) {
+        return mKeys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public E valueAt(int index) {
+        return (E) mValues[index];
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new ValueIterator();
+    }
+
+    private class ValueIterator implements Iterator<E> {
+
+        private int mNextIndex = 0;
+
+        @Override
+        public boolean hasNext() {
+            return mNextIndex < mSize;
+        }
+
+        @Override
+        public E next() {
+            return valueAt(mNextIndex++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
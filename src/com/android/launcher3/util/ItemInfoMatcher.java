@@ -27,6 +27,7 @@ import com.android.launcher3.WorkspaceItemInfo;
 import com.android.launcher3.shortcuts.ShortcutKey;
 
 import java.util.HashSet;
+import java.util.Set;
 
 /**
  * A utility class to check for {@link ItemInfo}
@@ -35,6 +36,15 @@ public interface ItemInfoMatcher {
 
     boolean matches(ItemInfo info, ComponentName cn);
 
+    /**
+     * Returns the packages of all the items this matcher can match, or null if it can match
+     * items of any package. This allows the model to only evaluate the matcher on the items
+     * referencing these packages.
+     */
+    default Set<PackageUserKey> getPackageScope() {
+        return null;
+    }
+
     /**
      * Filters {@param infos} to those satisfying the {@link #matches(ItemInfo, ComponentName)}.
      */
@@ -70,14 +80,50 @@ public interface ItemInfoMatcher {
      * Returns a new matcher with returns true if either this or {@param matcher} returns true.
      */
     default ItemInfoMatcher or(ItemInfoMatcher matcher) {
-        return (info, cn) -> matches(info, cn) || matcher.matches(info, cn);
+        ItemInfoMatcher result = (info, cn) -> matches(info, cn) || matcher.matches(info, cn);
+        Set<PackageUserKey> scope = getPackageScope();
+        Set<PackageUserKey> otherScope = matcher.getPackageScope();
+        if (scope == null || otherScope == null) {
+            return result;
+        }
+        HashSet<PackageUserKey> union = new HashSet<>(scope);
+        union.addAll(otherScope);
+        return withPackageScope(result, union);
     }
 
     /**
      * Returns a new matcher with returns true if both this and {@param matcher} returns true.
      */
     default ItemInfoMatcher and(ItemInfoMatcher matcher) {
-        return (info, cn) -> matches(info, cn) && matcher.matches(info, cn);
+        ItemInfoMatcher result = (info, cn) -> matches(info, cn) && matcher.matches(info, cn);
+        Set<PackageUserKey> scope = getPackageScope();
+        Set<PackageUserKey> otherScope = matcher.getPackageScope();
+        if (scope == null && otherScope == null) {
+            return result;
+        } else if (scope == null || otherScope == null) {
+            return withPackageScope(result, scope == null ? otherScope : scope);
+        }
+        HashSet<PackageUserKey> intersection = new HashSet<>(scope);
+        intersection.retainAll(otherScope);
+        return withPackageScope(result, intersection);
+    }
+
+    /**
+     * Returns a matcher same as {@param matcher}, which only matches items of the packages in
+     * {@param scope}.
+     */
+    static ItemInfoMatcher withPackageScope(ItemInfoMatcher matcher, Set<PackageUserKey> scope) {
+        return new ItemInfoMatcher() {
+            @Override
+            public boolean matches(ItemInfo info, ComponentName cn) {
+                return matcher.matches(info, cn);
+            }
+
+            @Override
+            public Set<PackageUserKey> getPackageScope() {
+                return scope;
+            }
+        };
     }
 
     /**
@@ -93,16 +139,30 @@ public interface ItemInfoMatcher {
     }
 
     static ItemInfoMatcher ofComponents(HashSet<ComponentName> components, UserHandle user) {
-        return (info, cn) -> components.contains(cn) && info.user.equals(user);
+        HashSet<PackageUserKey> scope = new HashSet<>();
+        for (ComponentName cn : components) {
+            scope.add(new PackageUserKey(cn.getPackageName(), user));
+        }
+        return withPackageScope(
+                (info, cn) -> components.contains(cn) && info.user.equals(user), scope);
     }
 
     static ItemInfoMatcher ofPackages(HashSet<String> packageNames, UserHandle user) {
-        return (info, cn) -> packageNames.contains(cn.getPackageName()) && info.user.equals(user);
+        HashSet<PackageUserKey> scope = new HashSet<>();
+        for (String packageName : packageNames) {
+            scope.add(new PackageUserKey(packageName, user));
+        }
+        return withPackageScope((info, cn) ->
+                packageNames.contains(cn.getPackageName()) && info.user.equals(user), scope);
     }
 
     static ItemInfoMatcher ofShortcutKeys(HashSet<ShortcutKey> keys) {
-        return  (info, cn) -> info.itemType == Favorites.ITEM_TYPE_DEEP_SHORTCUT &&
-                        keys.contains(ShortcutKey.fromItemInfo(info));
+        HashSet<PackageUserKey> scope = new HashSet<>();
+        for (ShortcutKey key : keys) {
+            scope.add(new PackageUserKey(key.componentName.getPackageName(), key.user));
+        }
+        return withPackageScope((info, cn) -> info.itemType == Favorites.ITEM_TYPE_DEEP_SHORTCUT
+                && keys.contains(ShortcutKey.fromItemInfo(info)), scope);
     }
 
     static ItemInfoMatcher ofItemIds(IntSparseArrayMap<Boolean> ids, Boolean matchDefault) {
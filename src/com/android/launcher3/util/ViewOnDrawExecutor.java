@@ -17,6 +17,8 @@
 package com.android.launcher3.util;
 
 import android.os.Process;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.View.OnAttachStateChangeListener;
 import android.view.ViewTreeObserver.OnDrawListener;
@@ -26,14 +28,49 @@ import com.android.launcher3.LauncherModel;
 
 import java.util.ArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An executor which runs all the tasks after the first onDraw is called on the target view.
+ *
+ * The tasks are run over multiple frames: on every frame, tasks are run until the estimated cost
+ * of the next task no longer fits in the frame budget. The cost of each type of task (see
+ * {@link #TASK_TYPE_ICON}) is measured as the tasks run, so that expensive tasks like widgets
+ * are spread out more than icons.
  */
 public class ViewOnDrawExecutor implements Executor, OnDrawListener, Runnable,
-        OnAttachStateChangeListener {
+        OnAttachStateChangeListener, Choreographer.FrameCallback {
+
+    private static final String TAG = "ViewOnDrawExecutor";
+
+    public static final int TASK_TYPE_OTHER = 0;
+    public static final int TASK_TYPE_ICON = 1;
+    public static final int TASK_TYPE_FOLDER = 2;
+    public static final int TASK_TYPE_WIDGET = 3;
+
+    private static final long DEFAULT_FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(8);
+    private static final long FRAME_DURATION_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    /**
+     * Moving average of the time taken by each type of task. This is shared across binds, so
+     * that later binds start with the costs measured on this device.
+     */
+    private static final long[] sAverageTaskCostNanos = new long[] {
+            TimeUnit.MICROSECONDS.toNanos(500),  // TASK_TYPE_OTHER
+            TimeUnit.MICROSECONDS.toNanos(1000), // TASK_TYPE_ICON
+            TimeUnit.MICROSECONDS.toNanos(3000), // TASK_TYPE_FOLDER
+            TimeUnit.MICROSECONDS.toNanos(6000), // TASK_TYPE_WIDGET
+    };
 
     private final ArrayList<Runnable> mTasks = new ArrayList<>();
+    private long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+
+    // Index of the next task to run
+    private int mNextTask;
+    private boolean mRunning;
+    private long mRunStartTime;
+    private int mFrameCount;
+    private int mOverBudgetFrameCount;
 
     private Launcher mLauncher;
     private View mAttachedView;
@@ -90,17 +127,71 @@ public class ViewOnDrawExecutor implements Executor, OnDrawListener, Runnable,
         }
     }
 
+    /**
+     * Sets the maximum time to spend running tasks on every frame. At least one task is run on
+     * every frame regardless of the budget.
+     */
+    public void setFrameBudget(long budget, TimeUnit unit) {
+        mFrameBudgetNanos = unit.toNanos(budget);
+    }
+
     @Override
     public void run() {
         // Post the pending tasks after both onDraw and onLoadAnimationCompleted have been called.
-        if (mLoadAnimationCompleted && mFirstDrawCompleted && !mCompleted) {
-            runAllTasks();
+        if (mLoadAnimationCompleted && mFirstDrawCompleted && !mCompleted && !mRunning) {
+            mRunning = true;
+            mRunStartTime = System.nanoTime();
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mCompleted) {
+            return;
+        }
+        long frameStart = System.nanoTime();
+        long deadline = frameStart + mFrameBudgetNanos;
+        boolean ranTask = false;
+        while (mNextTask < mTasks.size() && !mCompleted) {
+            Runnable task = mTasks.get(mNextTask);
+            int type = task instanceof TypedTask ? ((TypedTask) task).mType : TASK_TYPE_OTHER;
+            long taskStart = System.nanoTime();
+            if (ranTask && taskStart + sAverageTaskCostNanos[type] > deadline) {
+                break;
+            }
+            mNextTask++;
+            task.run();
+            ranTask = true;
+            long cost = System.nanoTime() - taskStart;
+            sAverageTaskCostNanos[type] = (sAverageTaskCostNanos[type] * 3 + cost) / 4;
+        }
+
+        mFrameCount++;
+        if (System.nanoTime() - frameStart > FRAME_DURATION_NANOS) {
+            mOverBudgetFrameCount++;
+        }
+        if (mCompleted) {
+            return;
+        }
+        if (mNextTask < mTasks.size()) {
+            Choreographer.getInstance().postFrameCallback(this);
+        } else {
+            Log.d(TAG, "Ran " + mTasks.size() + " tasks in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mRunStartTime)
+                    + "ms over " + mFrameCount + " frames, " + mOverBudgetFrameCount
+                    + " frames took longer than " + TimeUnit.NANOSECONDS.toMillis(
+                            FRAME_DURATION_NANOS) + "ms");
+            markCompleted();
         }
     }
 
     public void markCompleted() {
         mTasks.clear();
         mCompleted = true;
+        if (mRunning) {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
         if (mAttachedView != null) {
             mAttachedView.getViewTreeObserver().removeOnDrawListener(this);
             mAttachedView.removeOnAttachStateChangeListener(this);
@@ -115,10 +206,26 @@ public class ViewOnDrawExecutor implements Executor, OnDrawListener, Runnable,
         return mCompleted;
     }
 
-    protected void runAllTasks() {
-        for (final Runnable r : mTasks) {
-            r.run();
+    /**
+     * Wraps {@param task} so that it is scheduled using the cost of the provided type.
+     */
+    public static Runnable newTypedTask(int type, Runnable task) {
+        return new TypedTask(type, task);
+    }
+
+    private static class TypedTask implements Runnable {
+
+        private final int mType;
+        private final Runnable mTask;
+
+        TypedTask(int type, Runnable task) {
+            mType = type;
+            mTask = task;
+        }
+
+        @Override
+        public void run() {
+            mTask.run();
         }
-        markCompleted();
     }
 }
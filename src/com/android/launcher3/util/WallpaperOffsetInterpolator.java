@@ -10,12 +10,15 @@ import android.os.IBinder;
 import android.os.Message;
 import android.os.SystemClock;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.animation.Interpolator;
 
 import com.android.launcher3.Utilities;
 import com.android.launcher3.Workspace;
 import com.android.launcher3.anim.Interpolators;
 
+import java.io.PrintWriter;
+
 /**
  * Utility class to handle wallpaper scrolling along with workspace.
  */
@@ -39,6 +42,10 @@ public class WallpaperOffsetInterpolator extends BroadcastReceiver {
     private boolean mLockedToDefaultPage;
     private int mNumScreens;
 
+    // Last offset sent to the handler, as an int ratio
+    private final int[] mLastOffset = new int[2];
+    private IBinder mLastOffsetToken;
+
     public WallpaperOffsetInterpolator(Workspace workspace) {
         mWorkspace = workspace;
         mIsRtl = Utilities.isRtl(workspace.getResources());
@@ -130,17 +137,23 @@ public class WallpaperOffsetInterpolator extends BroadcastReceiver {
     public void syncWithScroll() {
         int numScreens = getNumScreensExcludingEmpty();
         wallpaperOffsetForScroll(mWorkspace.getScrollX(), numScreens, sTempInt);
-        Message msg = Message.obtain(mHandler, MSG_UPDATE_OFFSET, sTempInt[0], sTempInt[1],
-                mWindowToken);
+        int what = MSG_UPDATE_OFFSET;
         if (numScreens != mNumScreens) {
             if (mNumScreens > 0) {
                 // Don't animate if we're going from 0 screens
-                msg.what = MSG_START_ANIMATION;
+                what = MSG_START_ANIMATION;
             }
             mNumScreens = numScreens;
             updateOffset();
+        } else if (sTempInt[0] == mLastOffset[0] && sTempInt[1] == mLastOffset[1]
+                && mWindowToken == mLastOffsetToken) {
+            // The handler already has this offset
+            return;
         }
-        msg.sendToTarget();
+        mLastOffset[0] = sTempInt[0];
+        mLastOffset[1] = sTempInt[1];
+        mLastOffsetToken = mWindowToken;
+        Message.obtain(mHandler, what, sTempInt[0], sTempInt[1], mWindowToken).sendToTarget();
     }
 
     private void updateOffset() {
@@ -180,11 +193,24 @@ public class WallpaperOffsetInterpolator extends BroadcastReceiver {
 
     private static final int MSG_START_ANIMATION = 1;
     private static final int MSG_UPDATE_OFFSET = 2;
-    private static final int MSG_APPLY_OFFSET = 3;
     private static final int MSG_SET_NUM_PARALLAX = 4;
     private static final int MSG_JUMP_TO_FINAL = 5;
 
-    private static class OffsetHandler extends Handler {
+    // Minimum offset change sent to the wallpaper, below a pixel even for very wide wallpapers
+    private static final float MIN_OFFSET_CHANGE = 0.0001f;
+    // Time after which offset updates are considered to be part of a new scroll
+    private static final long SCROLL_IDLE_TIMEOUT = 500;
+
+    public void dump(String prefix, PrintWriter writer) {
+        OffsetHandler handler = (OffsetHandler) mHandler;
+        long activeTime = handler.mActiveUpdateTime;
+        writer.println(prefix + "WallpaperOffsetInterpolator: offsetUpdates="
+                + handler.mUpdateCount + " offsetIpcs=" + handler.mIpcCount
+                + " skippedSmallChanges=" + handler.mSkippedCount + " ipcsPerScrollSecond="
+                + (activeTime == 0 ? 0 : handler.mIpcCount * 1000 / activeTime));
+    }
+
+    private static class OffsetHandler extends Handler implements Choreographer.FrameCallback {
 
         private final Interpolator mInterpolator;
         private final WallpaperManager mWM;
@@ -197,6 +223,19 @@ public class WallpaperOffsetInterpolator extends BroadcastReceiver {
         private float mFinalOffset;
         private float mOffsetX;
 
+        // The offset is applied at most once per frame, using the last received token
+        private Choreographer mChoreographer;
+        private boolean mApplyScheduled;
+        private IBinder mToken;
+        private float mAppliedOffset = Float.NaN;
+        private long mLastApplyTime;
+
+        // Stats, for dump
+        int mUpdateCount;
+        int mIpcCount;
+        int mSkippedCount;
+        long mActiveUpdateTime;
+
         public OffsetHandler(Context context) {
             super(UiThreadHelper.getBackgroundLooper());
             mInterpolator = Interpolators.DEACCEL_1_5;
@@ -219,33 +258,10 @@ public class WallpaperOffsetInterpolator extends BroadcastReceiver {
                 }
                 case MSG_UPDATE_OFFSET:
                     mFinalOffset = ((float) msg.arg1) / msg.arg2;
-                    // Follow through
-                case MSG_APPLY_OFFSET: {
-                    float oldOffset = mCurrentOffset;
-                    if (mAnimating) {
-                        long durationSinceAnimation = SystemClock.uptimeMillis()
-                                - mAnimationStartTime;
-                        float t0 = durationSinceAnimation / (float) ANIMATION_DURATION;
-                        float t1 = mInterpolator.getInterpolation(t0);
-                        mCurrentOffset = mAnimationStartOffset +
-                                (mFinalOffset - mAnimationStartOffset) * t1;
-                        mAnimating = durationSinceAnimation < ANIMATION_DURATION;
-                    } else {
-                        mCurrentOffset = mFinalOffset;
-                    }
-
-                    if (Float.compare(mCurrentOffset, oldOffset) != 0) {
-                        setOffsetSafely(token);
-                        // Force the wallpaper offset steps to be set again, because another app
-                        // might have changed them
-                        mWM.setWallpaperOffsetSteps(mOffsetX, 1.0f);
-                    }
-                    if (mAnimating) {
-                        // If we are animating, keep updating the offset
-                        Message.obtain(this, MSG_APPLY_OFFSET, token).sendToTarget();
-                    }
+                    mUpdateCount++;
+                    mToken = token;
+                    scheduleApplyOffset();
                     return;
-                }
                 case MSG_SET_NUM_PARALLAX: {
                     // Set wallpaper offset steps (1 / (number of screens - 1))
                     mOffsetX = 1.0f / (msg.arg1 - 1);
@@ -253,8 +269,8 @@ public class WallpaperOffsetInterpolator extends BroadcastReceiver {
                     return;
                 }
                 case MSG_JUMP_TO_FINAL: {
-                    if (Float.compare(mCurrentOffset, mFinalOffset) != 0) {
-                        mCurrentOffset = mFinalOffset;
+                    mCurrentOffset = mFinalOffset;
+                    if (Float.compare(mCurrentOffset, mAppliedOffset) != 0) {
                         setOffsetSafely(token);
                     }
                     mAnimating = false;
@@ -263,7 +279,56 @@ public class WallpaperOffsetInterpolator extends BroadcastReceiver {
             }
         }
 
+        private void scheduleApplyOffset() {
+            if (!mApplyScheduled) {
+                if (mChoreographer == null) {
+                    // Created on the handler thread, so that frame callbacks are posted to it
+                    mChoreographer = Choreographer.getInstance();
+                }
+                mApplyScheduled = true;
+                mChoreographer.postFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mApplyScheduled = false;
+            if (mAnimating) {
+                long durationSinceAnimation = SystemClock.uptimeMillis() - mAnimationStartTime;
+                float t0 = durationSinceAnimation / (float) ANIMATION_DURATION;
+                float t1 = mInterpolator.getInterpolation(t0);
+                mCurrentOffset = mAnimationStartOffset +
+                        (mFinalOffset - mAnimationStartOffset) * t1;
+                mAnimating = durationSinceAnimation < ANIMATION_DURATION;
+            } else {
+                mCurrentOffset = mFinalOffset;
+            }
+
+            // Skip changes which would move the wallpaper by less than a pixel
+            if (Math.abs(mCurrentOffset - mAppliedOffset) >= MIN_OFFSET_CHANGE
+                    || Float.isNaN(mAppliedOffset)) {
+                long now = SystemClock.uptimeMillis();
+                if (now - mLastApplyTime > SCROLL_IDLE_TIMEOUT) {
+                    // Force the wallpaper offset steps to be set again when the workspace starts
+                    // scrolling, because another app might have changed them
+                    mWM.setWallpaperOffsetSteps(mOffsetX, 1.0f);
+                } else {
+                    mActiveUpdateTime += now - mLastApplyTime;
+                }
+                mLastApplyTime = now;
+                setOffsetSafely(mToken);
+            } else if (Float.compare(mCurrentOffset, mAppliedOffset) != 0) {
+                mSkippedCount++;
+            }
+            if (mAnimating) {
+                // If we are animating, keep updating the offset on the next frame
+                scheduleApplyOffset();
+            }
+        }
+
         private void setOffsetSafely(IBinder token) {
+            mIpcCount++;
+            mAppliedOffset = mCurrentOffset;
             try {
                 mWM.setWallpaperOffsets(token, mCurrentOffset, 0.5f);
             } catch (IllegalArgumentException e) {
@@ -271,4 +336,4 @@ public class WallpaperOffsetInterpolator extends BroadcastReceiver {
             }
         }
     }
-}
\ No newline at end of file
+}
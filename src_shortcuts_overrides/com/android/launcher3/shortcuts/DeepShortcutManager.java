@@ -30,9 +30,11 @@ import android.util.Log;
 import com.android.launcher3.ItemInfo;
 import com.android.launcher3.LauncherSettings;
 import com.android.launcher3.WorkspaceItemInfo;
+import com.android.launcher3.util.PackageUserKey;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -43,6 +45,8 @@ public class DeepShortcutManager {
 
     private static final int FLAG_GET_ALL = ShortcutQuery.FLAG_MATCH_DYNAMIC
             | ShortcutQuery.FLAG_MATCH_MANIFEST | ShortcutQuery.FLAG_MATCH_PINNED;
+    private static final int FLAG_MATCH_CONTAINER = ShortcutQuery.FLAG_MATCH_MANIFEST
+            | ShortcutQuery.FLAG_MATCH_DYNAMIC;
 
     private static DeepShortcutManager sInstance;
     private static final Object sInstanceLock = new Object();
@@ -59,6 +63,18 @@ public class DeepShortcutManager {
     private final LauncherApps mLauncherApps;
     private boolean mWasLastCallSuccess;
 
+    /**
+     * Manifest and dynamic shortcuts of each package, used to answer
+     * {@link #queryForShortcutsContainer} without making a binder call on every long press.
+     */
+    private final HashMap<PackageUserKey, List<ShortcutInfo>> mContainerShortcuts =
+            new HashMap<>();
+    /**
+     * Incremented whenever {@link #mContainerShortcuts} is invalidated, so that the result of a
+     * query which was in flight during the invalidation is not cached.
+     */
+    private int mCacheVersion;
+
     private DeepShortcutManager(Context context) {
         mLauncherApps = (LauncherApps) context.getSystemService(Context.LAUNCHER_APPS_SERVICE);
     }
@@ -91,8 +107,46 @@ public class DeepShortcutManager {
      */
     public List<ShortcutInfo> queryForShortcutsContainer(ComponentName activity,
             UserHandle user) {
-        return query(ShortcutQuery.FLAG_MATCH_MANIFEST | ShortcutQuery.FLAG_MATCH_DYNAMIC,
-                activity.getPackageName(), activity, null, user);
+        PackageUserKey key = new PackageUserKey(activity.getPackageName(), user);
+        List<ShortcutInfo> packageShortcuts;
+        int version;
+        synchronized (mContainerShortcuts) {
+            packageShortcuts = mContainerShortcuts.get(key);
+            version = mCacheVersion;
+        }
+        if (packageShortcuts == null) {
+            packageShortcuts = query(FLAG_MATCH_CONTAINER, key.mPackageName, null, null, user);
+            if (mWasLastCallSuccess) {
+                synchronized (mContainerShortcuts) {
+                    if (version == mCacheVersion) {
+                        mContainerShortcuts.put(key, packageShortcuts);
+                    }
+                }
+            }
+        }
+
+        List<ShortcutInfo> shortcuts = new ArrayList<>(packageShortcuts.size());
+        for (ShortcutInfo shortcut : packageShortcuts) {
+            if (activity.equals(shortcut.getActivity())) {
+                shortcuts.add(shortcut);
+            }
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Removes the cached shortcuts of the given package, or of all packages of the user if
+     * packageName is null, so that they are queried again the next time they are needed.
+     */
+    public void invalidateShortcutCache(String packageName, UserHandle user) {
+        synchronized (mContainerShortcuts) {
+            mCacheVersion++;
+            if (packageName != null) {
+                mContainerShortcuts.remove(new PackageUserKey(packageName, user));
+            } else {
+                mContainerShortcuts.keySet().removeIf(key -> key.mUser.equals(user));
+            }
+        }
     }
 
     /**
@@ -171,8 +225,28 @@ public class DeepShortcutManager {
         return query(ShortcutQuery.FLAG_MATCH_PINNED, packageName, null, shortcutIds, user);
     }
 
+    /**
+     * Returns all the shortcuts of the given user, and uses the result to populate the cache
+     * used by {@link #queryForShortcutsContainer}.
+     */
     public List<ShortcutInfo> queryForAllShortcuts(UserHandle user) {
-        return query(FLAG_GET_ALL, null, null, null, user);
+        List<ShortcutInfo> shortcuts = query(FLAG_GET_ALL, null, null, null, user);
+        if (mWasLastCallSuccess) {
+            HashMap<PackageUserKey, List<ShortcutInfo>> packageShortcuts = new HashMap<>();
+            for (ShortcutInfo shortcut : shortcuts) {
+                if (shortcut.isDynamic() || shortcut.isDeclaredInManifest()) {
+                    packageShortcuts.computeIfAbsent(
+                            new PackageUserKey(shortcut.getPackage(), user),
+                            k -> new ArrayList<>()).add(shortcut);
+                }
+            }
+            synchronized (mContainerShortcuts) {
+                mCacheVersion++;
+                mContainerShortcuts.keySet().removeIf(key -> key.mUser.equals(user));
+                mContainerShortcuts.putAll(packageShortcuts);
+            }
+        }
+        return shortcuts;
     }
 
     private List<String> extractIds(List<ShortcutInfo> shortcuts) {
@@ -186,8 +260,6 @@ public class DeepShortcutManager {
     /**
      * Query the system server for all the shortcuts matching the given parameters.
      * If packageName == null, we query for all shortcuts with the passed flags, regardless of app.
-     *
-     * TODO: Use the cache to optimize this so we don't make an RPC every time.
      */
     private List<ShortcutInfo> query(int flags, String packageName,
             ComponentName activity, List<String> shortcutIds, UserHandle user) {
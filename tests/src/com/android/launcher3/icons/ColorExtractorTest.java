@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.icons;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.filters.LargeTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.launcher3.LauncherAppState;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link ColorExtractor}, comparing it against the original per-pixel implementation
+ * over the icons of all the installed apps.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ColorExtractorTest {
+
+    private static final String TAG = "ColorExtractorTest";
+    private static final int NUM_SAMPLES = 20;
+    private static final int ITERATIONS = 5;
+
+    private Context mContext;
+    private List<Bitmap> mIcons;
+
+    @Before
+    public void setup() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        int iconSize = LauncherAppState.getIDP(mContext).iconBitmapSize;
+
+        PackageManager pm = mContext.getPackageManager();
+        List<ResolveInfo> activities = pm.queryIntentActivities(
+                new Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER), 0);
+        mIcons = new ArrayList<>(activities.size());
+        for (ResolveInfo info : activities) {
+            Drawable icon = info.loadIcon(pm);
+            Bitmap bitmap = Bitmap.createBitmap(iconSize, iconSize, Bitmap.Config.ARGB_8888);
+            icon.setBounds(0, 0, iconSize, iconSize);
+            icon.draw(new Canvas(bitmap));
+            mIcons.add(bitmap);
+        }
+    }
+
+    @Test
+    public void testRgbToHsv_matchesFramework() {
+        float[] expected = new float[3];
+        float[] actual = new float[3];
+        for (int r = 0; r < 256; r += 3) {
+            for (int g = 0; g < 256; g += 3) {
+                for (int b = 0; b < 256; b += 3) {
+                    int rgb = Color.rgb(r, g, b);
+                    Color.colorToHSV(rgb, expected);
+                    ColorExtractor.rgbToHsv(rgb, actual);
+                    assertArrayEquals("Color " + Integer.toHexString(rgb), expected, actual, 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFindDominantColorByHue_matchesReference() {
+        assertFalse(mIcons.isEmpty());
+
+        ColorExtractor extractor = new ColorExtractor();
+        int[] expected = new int[mIcons.size()];
+        int[] actual = new int[mIcons.size()];
+
+        long referenceTime = 0;
+        long extractorTime = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            for (int j = 0; j < mIcons.size(); j++) {
+                expected[j] = findDominantColorByHueReference(mIcons.get(j), NUM_SAMPLES);
+            }
+            referenceTime += SystemClock.elapsedRealtimeNanos() - start;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            for (int j = 0; j < mIcons.size(); j++) {
+                actual[j] = extractor.findDominantColorByHue(mIcons.get(j), NUM_SAMPLES);
+            }
+            extractorTime += SystemClock.elapsedRealtimeNanos() - start;
+        }
+
+        for (int i = 0; i < mIcons.size(); i++) {
+            assertEquals("Icon " + i, expected[i], actual[i]);
+        }
+        Log.d(TAG, "Extracted colors of " + mIcons.size() + " icons " + ITERATIONS
+                + " times, reference: " + referenceTime / 1000 + "us, extractor: "
+                + extractorTime / 1000 + "us");
+    }
+
+    /**
+     * The original implementation of {@link ColorExtractor#findDominantColorByHue}, reading one
+     * pixel at a time and converting it through {@link Color#colorToHSV}.
+     */
+    private static int findDominantColorByHueReference(Bitmap bitmap, int samples) {
+        final int height = bitmap.getHeight();
+        final int width = bitmap.getWidth();
+        int sampleStride = (int) Math.sqrt((height * width) / samples);
+        if (sampleStride < 1) {
+            sampleStride = 1;
+        }
+
+        float[] hsv = new float[3];
+        float[] hueScoreHistogram = new float[360];
+        float highScore = -1;
+        int bestHue = -1;
+
+        int[] pixels = new int[samples];
+        int pixelCount = 0;
+
+        for (int y = 0; y < height; y += sampleStride) {
+            for (int x = 0; x < width; x += sampleStride) {
+                int argb = bitmap.getPixel(x, y);
+                int alpha = 0xFF & (argb >> 24);
+                if (alpha < 0x80) {
+                    continue;
+                }
+                int rgb = argb | 0xFF000000;
+                Color.colorToHSV(rgb, hsv);
+                int hue = (int) hsv[0];
+                if (hue < 0 || hue >= hueScoreHistogram.length) {
+                    continue;
+                }
+                if (pixelCount < samples) {
+                    pixels[pixelCount++] = rgb;
+                }
+                float score = hsv[1] * hsv[2];
+                hueScoreHistogram[hue] += score;
+                if (hueScoreHistogram[hue] > highScore) {
+                    highScore = hueScoreHistogram[hue];
+                    bestHue = hue;
+                }
+            }
+        }
+
+        SparseArray<Float> rgbScores = new SparseArray<>();
+        int bestColor = 0xff000000;
+        highScore = -1;
+        for (int i = 0; i < pixelCount; i++) {
+            int rgb = pixels[i];
+            Color.colorToHSV(rgb, hsv);
+            int hue = (int) hsv[0];
+            if (hue == bestHue) {
+                float s = hsv[1];
+                float v = hsv[2];
+                int bucket = (int) (s * 100) + (int) (v * 10000);
+                float score = s * v;
+                Float oldTotal = rgbScores.get(bucket);
+                float newTotal = oldTotal == null ? score : oldTotal + score;
+                rgbScores.put(bucket, newTotal);
+                if (newTotal > highScore) {
+                    highScore = newTotal;
+                    bestColor = rgb;
+                }
+            }
+        }
+        return bestColor;
+    }
+}
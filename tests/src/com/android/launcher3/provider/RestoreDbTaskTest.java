@@ -1,14 +1,18 @@
 package com.android.launcher3.provider;
 
+import android.app.backup.BackupManager;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.os.UserHandle;
 import androidx.test.InstrumentationRegistry;
 import androidx.test.filters.MediumTest;
 import androidx.test.runner.AndroidJUnit4;
 
+import com.android.launcher3.LauncherAppWidgetInfo;
 import com.android.launcher3.LauncherProvider.DatabaseHelper;
 import com.android.launcher3.LauncherSettings.Favorites;
+import com.android.launcher3.WorkspaceItemInfo;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -48,6 +52,27 @@ public class RestoreDbTaskTest {
         assertEquals(5, getCount(db, "select * from favorites where profileId = 33"));
     }
 
+    @Test
+    public void testMigrateProfileIdKeepsOtherProfiles() throws Exception {
+        SQLiteDatabase db = new MyDatabaseHelper(42).getWritableDatabase();
+        // Add some dummy data, in two profiles
+        for (int i = 0; i < 6; i++) {
+            ContentValues values = new ContentValues();
+            values.put(Favorites._ID, i);
+            values.put(Favorites.TITLE, "item " + i);
+            if (i % 2 == 0) {
+                values.put(Favorites.PROFILE_ID, 7);
+            }
+            db.insert(Favorites.TABLE_NAME, null, values);
+        }
+
+        new RestoreDbTask().migrateProfileId(db, 42, 7);
+
+        // verify all data migrated, and items of the other profile are unchanged
+        assertEquals(0, getCount(db, "select * from favorites where profileId = 42"));
+        assertEquals(6, getCount(db, "select * from favorites where profileId = 7"));
+    }
+
     @Test
     public void testChangeDefaultColumn() throws Exception {
         SQLiteDatabase db = new MyDatabaseHelper(42).getWritableDatabase();
@@ -71,6 +96,65 @@ public class RestoreDbTaskTest {
         assertEquals(1, getCount(db, "select * from favorites where profileId = 33"));
     }
 
+    @Test
+    public void testSanitizeDB() throws Exception {
+        SQLiteDatabase db = new MyDatabaseHelper(42).getWritableDatabase();
+        addItemsForSanitize(db);
+
+        new RestoreDbTask().sanitizeDB(new MyDatabaseHelper(42), db, new MyBackupManager());
+
+        // Verify items of the unrestored profile are marked obsolete, and restore flags are set
+        assertEquals(4, getCount(db, "select * from favorites where profileId = 42"));
+        assertEquals(2, getCount(db, "select * from favorites where profileId = -1"));
+        assertEquals(3, getCount(db, "select * from favorites where profileId = 42"
+                + " and itemType = " + Favorites.ITEM_TYPE_APPLICATION
+                + " and (restored & " + WorkspaceItemInfo.FLAG_RESTORED_ICON + ") != 0"));
+        assertEquals(1, getCount(db, "select * from favorites where itemType = "
+                + Favorites.ITEM_TYPE_APPWIDGET + " and (restored & "
+                + LauncherAppWidgetInfo.FLAG_ID_NOT_VALID + ") != 0"));
+    }
+
+    @Test
+    public void testSanitizeDBChangesDefaultProfile() throws Exception {
+        SQLiteDatabase db = new MyDatabaseHelper(42).getWritableDatabase();
+        addItemsForSanitize(db);
+
+        new RestoreDbTask().sanitizeDB(new MyDatabaseHelper(33), db, new MyBackupManager());
+
+        // Verify items are migrated while the table is recreated
+        assertEquals(0, getCount(db, "select * from favorites where profileId = 42"));
+        assertEquals(4, getCount(db, "select * from favorites where profileId = 33"));
+        assertEquals(2, getCount(db, "select * from favorites where profileId = -1"));
+        assertEquals(1, getCount(db, "select * from favorites where itemType = "
+                + Favorites.ITEM_TYPE_APPWIDGET + " and (restored & "
+                + LauncherAppWidgetInfo.FLAG_ID_NOT_VALID + ") != 0"));
+
+        // Verify default value changed
+        ContentValues values = new ContentValues();
+        values.put(Favorites._ID, 100);
+        values.put(Favorites.TITLE, "item 100");
+        db.insert(Favorites.TABLE_NAME, null, values);
+        assertEquals(5, getCount(db, "select * from favorites where profileId = 33"));
+    }
+
+    /**
+     * Adds three apps and a widget in the default profile, and two apps in a profile which is
+     * not restored.
+     */
+    private void addItemsForSanitize(SQLiteDatabase db) {
+        for (int i = 0; i < 6; i++) {
+            ContentValues values = new ContentValues();
+            values.put(Favorites._ID, i);
+            values.put(Favorites.TITLE, "item " + i);
+            values.put(Favorites.ITEM_TYPE, i == 3
+                    ? Favorites.ITEM_TYPE_APPWIDGET : Favorites.ITEM_TYPE_APPLICATION);
+            if (i >= 4) {
+                values.put(Favorites.PROFILE_ID, 7);
+            }
+            db.insert(Favorites.TABLE_NAME, null, values);
+        }
+    }
+
     private int getCount(SQLiteDatabase db, String sql) {
         try (Cursor c = db.rawQuery(sql, null)) {
             return c.getCount();
@@ -96,4 +180,17 @@ public class RestoreDbTaskTest {
 
         protected void onEmptyDbCreated() { }
     }
+
+    private static class MyBackupManager extends BackupManager {
+
+        MyBackupManager() {
+            super(InstrumentationRegistry.getContext());
+        }
+
+        @Override
+        public UserHandle getUserForAncestralSerialNumber(long ancestralSerialNumber) {
+            // No managed profile is restored
+            return null;
+        }
+    }
 }
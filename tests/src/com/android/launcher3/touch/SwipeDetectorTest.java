@@ -15,6 +15,8 @@
  */
 package com.android.launcher3.touch;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyFloat;
 import static org.mockito.Matchers.anyObject;
@@ -22,7 +24,10 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
+import android.os.Debug;
+import android.os.SystemClock;
 import android.util.Log;
+import android.view.MotionEvent;
 import android.view.ViewConfiguration;
 
 import com.android.launcher3.testcomponent.TouchEventGenerator;
@@ -42,6 +47,12 @@ import androidx.test.runner.AndroidJUnit4;
 public class SwipeDetectorTest {
 
     private static final String TAG = SwipeDetectorTest.class.getSimpleName();
+
+    private static final int REPLAY_MOVE_COUNT = 120;
+    private static final int REPLAY_ITERATIONS = 20;
+    // Generous bound on the average time to process a move event, to catch gross regressions.
+    private static final long MAX_MOVE_PROCESSING_NS = 500_000;
+
     public static void L(String s, Object... parts) {
         Log.d(TAG, (parts.length == 0) ? s : String.format(s, parts));
     }
@@ -162,4 +173,97 @@ public class SwipeDetectorTest {
         // TODO: actually calculate the following parameters and do exact value checks.
         verify(mMockListener).onDragEnd(anyFloat(), anyBoolean());
     }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testReplay_movesDoNotAllocate() {
+        CountingListener listener = new CountingListener();
+        mDetector = new SwipeDetector(mMockConfig, listener, SwipeDetector.VERTICAL, false);
+        mDetector.setDetectableScrollConditions(SwipeDetector.DIRECTION_BOTH, false);
+        MotionEvent[] trace = createSwipeTrace(100, 1000, -8);
+
+        // Replay once so that lazily created objects, eg. the pooled VelocityTracker, exist.
+        replay(trace, 0, trace.length);
+        mDetector.finishedScrolling();
+
+        long moveTime = 0;
+        int allocCount = 0;
+        Debug.startAllocCounting();
+        try {
+            for (int n = 0; n < REPLAY_ITERATIONS; n++) {
+                mDetector.onTouchEvent(trace[0]);
+
+                Debug.resetThreadAllocCount();
+                long start = System.nanoTime();
+                replay(trace, 1, trace.length - 1);
+                moveTime += System.nanoTime() - start;
+                allocCount += Debug.getThreadAllocCount();
+
+                mDetector.onTouchEvent(trace[trace.length - 1]);
+                mDetector.finishedScrolling();
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        for (MotionEvent ev : trace) {
+            ev.recycle();
+        }
+
+        long moveCount = (long) REPLAY_ITERATIONS * REPLAY_MOVE_COUNT;
+        L("Replayed %d moves: %dns/move", moveCount, moveTime / moveCount);
+        assertEquals(REPLAY_ITERATIONS + 1, listener.dragStartCount);
+        assertEquals(REPLAY_ITERATIONS + 1, listener.dragEndCount);
+        assertTrue(listener.dragCount >= moveCount / 2);
+        assertEquals("Move events should not allocate", 0, allocCount);
+        assertTrue(moveTime / moveCount < MAX_MOVE_PROCESSING_NS);
+    }
+
+    /**
+     * Returns a down event at (x, y), followed by {@link #REPLAY_MOVE_COUNT} moves of dy pixels
+     * each, 8ms apart, and an up event.
+     */
+    private static MotionEvent[] createSwipeTrace(int x, int y, int dy) {
+        MotionEvent[] trace = new MotionEvent[REPLAY_MOVE_COUNT + 2];
+        long downTime = SystemClock.uptimeMillis();
+        trace[0] = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0);
+        for (int i = 1; i <= REPLAY_MOVE_COUNT; i++) {
+            trace[i] = MotionEvent.obtain(downTime, downTime + i * 8, MotionEvent.ACTION_MOVE,
+                    x, y + i * dy, 0);
+        }
+        trace[trace.length - 1] = MotionEvent.obtain(downTime, downTime + trace.length * 8,
+                MotionEvent.ACTION_UP, x, y + REPLAY_MOVE_COUNT * dy, 0);
+        return trace;
+    }
+
+    private void replay(MotionEvent[] trace, int start, int end) {
+        for (int i = start; i < end; i++) {
+            mDetector.onTouchEvent(trace[i]);
+        }
+    }
+
+    /**
+     * Listener which only counts the callbacks, as a mock would allocate for every invocation.
+     */
+    private static class CountingListener implements SwipeDetector.Listener {
+
+        int dragStartCount;
+        int dragCount;
+        int dragEndCount;
+
+        @Override
+        public void onDragStart(boolean start) {
+            dragStartCount++;
+        }
+
+        @Override
+        public boolean onDrag(float displacement) {
+            dragCount++;
+            return true;
+        }
+
+        @Override
+        public void onDragEnd(float velocity, boolean fling) {
+            dragEndCount++;
+        }
+    }
 }
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.android.launcher3.ui;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.test.filters.MediumTest;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.launcher3.AppInfo;
+import com.android.launcher3.CellLayout;
+import com.android.launcher3.FolderInfo;
+import com.android.launcher3.LauncherSettings;
+import com.android.launcher3.R;
+import com.android.launcher3.Workspace;
+import com.android.launcher3.WorkspaceItemInfo;
+import com.android.launcher3.folder.Folder;
+import com.android.launcher3.folder.FolderIcon;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Iterator;
+
+/**
+ * Tests for creating the item views of a folder.
+ */
+@MediumTest
+@RunWith(AndroidJUnit4.class)
+public class FolderContentBindTest extends AbstractLauncherUiTest {
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        clearLauncherData();
+        mActivityMonitor.startLauncher();
+        waitForModelLoaded();
+    }
+
+    @Test
+    public void testFolderCreatedFromTwoIcons_hasTwoItemViews() {
+        int[] counts = getFromLauncher(launcher -> {
+            Iterator<AppInfo> apps = launcher.getAppsView().getAppsStore().getApps().iterator();
+            WorkspaceItemInfo first = new WorkspaceItemInfo(apps.next());
+            WorkspaceItemInfo second = new WorkspaceItemInfo(apps.next());
+
+            CellLayout layout = launcher.getWorkspace().getScreenWithId(Workspace.FIRST_SCREEN_ID);
+            FolderInfo folderInfo = new FolderInfo();
+            launcher.getModelWriter().addItemToDatabase(folderInfo,
+                    LauncherSettings.Favorites.CONTAINER_DESKTOP, Workspace.FIRST_SCREEN_ID, 0, 0);
+            FolderIcon folderIcon =
+                    FolderIcon.fromXml(R.layout.folder_icon, launcher, layout, folderInfo);
+
+            // Same as dropping an icon on another one.
+            folderIcon.addItem(first, false);
+            folderIcon.addItem(second, false);
+
+            Folder folder = folderIcon.getFolder();
+            return new int[] {folderInfo.contents.size(), folder.getItemCount(),
+                    folder.getItemsInReadingOrder().size()};
+        });
+
+        assertEquals("Wrong number of items", 2, counts[0]);
+        assertEquals("Wrong number of item views", 2, counts[1]);
+        assertEquals("Wrong number of item views in reading order", 2, counts[2]);
+    }
+}